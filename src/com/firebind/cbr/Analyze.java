@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.firebind.cbr.analyze.DepartureLogAnalyzer;
+
+/**
+ * Main program for analyzing a departure log written with
+ * <code>Transmit ... --log &lt;file&gt;</code>
+ *
+ * @author agent
+ */
+public class Analyze {
+
+  /**
+   * Usage help text
+   */
+  final static String USAGE = "Usage: Analyze <logFile> [rateWindowMillis] "
+      + "[burstGapMicros]";
+
+  /**
+   * @param args
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+
+    if (args.length < 1) {
+      System.out.println(USAGE);
+      return;
+    }
+
+    DepartureLogAnalyzer analyzer = new DepartureLogAnalyzer();
+    if (args.length > 1) {
+      analyzer.setRateWindowNanos(
+          TimeUnit.MILLISECONDS.toNanos(Long.parseLong(args[1])));
+    }
+    if (args.length > 2) {
+      analyzer.setBurstGapNanos(
+          TimeUnit.MICROSECONDS.toNanos(Long.parseLong(args[2])));
+    }
+    analyzer.analyze(new File(args[0]));
+    analyzer.print(System.out);
+  }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr;
+
+import com.firebind.cbr.bench.SleepBench;
+
+/**
+ * Main program comparing the wake-up error and CPU use of the sleep
+ * strategies
+ *
+ * @author agent
+ */
+public class BenchSleep {
+
+  /**
+   * @param args
+   * @throws InterruptedException
+   */
+  public static void main(String[] args) throws InterruptedException {
+    new SleepBench().run(System.out);
+  }
+
+}
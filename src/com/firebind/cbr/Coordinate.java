@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.firebind.cbr.coordinate.Coordinator;
+
+/**
+ * Main program for running a scenario over several hosts at once
+ *
+ * <p>The flows of the scenario are dealt out over the {@link RunAgent
+ * agents}, which all start at the same instant. Totals over all agents are
+ * printed every interval and a combined report once every agent is
+ * done.</p>
+ *
+ * @author agent
+ */
+public class Coordinate {
+
+  /**
+   * Usage help text
+   */
+  final static String USAGE = "Usage: Coordinate <scenarioFile> "
+      + "<agentHost:port> [agentHost:port ...] [--interval <seconds>]";
+
+  /**
+   * @param args
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  public static void main(String[] args)
+      throws IOException, InterruptedException {
+
+    List<InetSocketAddress> agents = new ArrayList<InetSocketAddress>();
+    long intervalMillis = 1000;
+    for (int i = 1; i < args.length; i++) {
+      if ("--interval".equals(args[i]) && i + 1 < args.length
+          && args[i + 1].matches("\\d+(\\.\\d*)?")) {
+        intervalMillis = (long) (Double.parseDouble(args[++i]) * 1000);
+      } else if (args[i].matches(".+:\\d+")) {
+        int colon = args[i].lastIndexOf(':');
+        agents.add(new InetSocketAddress(args[i].substring(0, colon),
+            Integer.parseInt(args[i].substring(colon + 1))));
+      } else {
+        System.out.println(USAGE);
+        return;
+      }
+    }
+    if (agents.isEmpty()) {
+      System.out.println(USAGE);
+      return;
+    }
+
+    Coordinator coordinator = new Coordinator(agents);
+    coordinator.setIntervalMillis(intervalMillis);
+    coordinator.run(new File(args[0]), System.out).print(System.out);
+  }
+
+}
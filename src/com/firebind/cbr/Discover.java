@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import com.firebind.cbr.bench.CapacitySearch;
+
+/**
+ * Main program finding the highest rate this host can hold accurately for
+ * each payload size, and storing the results as a capacity map
+ *
+ * @author agent
+ */
+public class Discover {
+
+  /**
+   * Usage help text
+   */
+  final static String USAGE = "Usage: Discover <capacityFile> "
+      + "<SendCompareTransmitter|SendSleepTransmitter> "
+      + "[ThreadSleepStrategy|SpinSleepStrategy|DeadlineSleepStrategy|"
+      + "ClockNanosleepSleepStrategy] "
+      + "[--payloads <bytes,bytes,...>] [--accuracy <percent>] "
+      + "[--deviation <micros>] [--cpu <percent>] [--duration <seconds>]";
+
+  /**
+   * @param args
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+
+    if (args.length < 2
+        || null == Transmit.createTransmitter(args[1], null)) {
+      System.out.println(USAGE);
+      return;
+    }
+
+    int i = 2;
+    String sleepStrategyType = null;
+    if (args.length > i && null != Transmit.createSleepStrategy(args[i])) {
+      sleepStrategyType = args[i++];
+    }
+    CapacitySearch search = new CapacitySearch(args[1], sleepStrategyType);
+    try {
+      for (; i < args.length; i++) {
+        if (i + 1 >= args.length) {
+          System.out.println(USAGE);
+          return;
+        }
+        switch (args[i]) {
+        case "--payloads":
+          String[] sizes = args[++i].split(",");
+          int[] payloadSizes = new int[sizes.length];
+          for (int size = 0; size < sizes.length; size++) {
+            payloadSizes[size] = Integer.parseInt(sizes[size].trim());
+          }
+          search.setPayloadSizes(payloadSizes);
+          break;
+        case "--accuracy":
+          search.setAccuracyTolerance(Double.parseDouble(args[++i]));
+          break;
+        case "--deviation":
+          search.setMaximumDeviationNanos(Long.parseLong(args[++i]) * 1000);
+          break;
+        case "--cpu":
+          search.setCpuBudgetPercent(Double.parseDouble(args[++i]));
+          break;
+        case "--duration":
+          search.setDurationSeconds(Integer.parseInt(args[++i]));
+          break;
+        default:
+          System.out.println(USAGE);
+          return;
+        }
+      }
+    } catch (NumberFormatException e) {
+      // malformed number in an option
+      System.out.println(USAGE);
+      return;
+    }
+
+    File capacityFile = new File(args[0]);
+    Map<Integer, Long> capacities = search.run(System.out);
+    search.store(capacities, capacityFile);
+    System.out.println("capacity map stored in " + capacityFile);
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import com.firebind.cbr.receive.FlowStatistics;
+import com.firebind.cbr.receive.Receiver;
+
+/**
+ * Main program for receiving CBR streams and measuring their rate
+ *
+ * <p>Listens on the given address and port with one or more receive threads.
+ * Once a stream has been quiet for the idle period the per-flow results are
+ * printed and the receiver listens for the next stream.</p>
+ *
+ * @author agent
+ */
+public class Receive {
+
+  /**
+   * Usage help text
+   */
+  final static String USAGE = "Usage: Receive <listenAddress> <port> "
+      + "[threadCount] [idleSeconds]";
+
+  /**
+   * @param args
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  public static void main(String[] args)
+      throws IOException, InterruptedException {
+
+    if (args.length < 2) {
+      System.out.println(USAGE);
+      return;
+    }
+
+    InetSocketAddress listen =
+        new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+    int threadCount = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+    long idleMillis =
+        args.length > 3 ? Long.parseLong(args[3]) * 1000 : 5000;
+
+    while (true) {
+      Receiver receiver = new Receiver(listen, threadCount);
+      receiver.start();
+      System.out.println("listening on " + receiver.getListenAddresses()
+          + " timeout=" + idleMillis + "ms");
+      receiver.awaitIdle(idleMillis);
+      List<FlowStatistics> flows = receiver.stop();
+
+      // every flow's last burst is left out, see FlowStatistics.getRate()
+      long byteCount = 0;
+      long firstNanos = Long.MAX_VALUE;
+      long lastNanos = Long.MIN_VALUE;
+      for (FlowStatistics flow : flows) {
+        System.out.println("flow from " + flow);
+        byteCount += flow.getBytesBeforeLastBurst();
+        firstNanos = Math.min(firstNanos, flow.getFirstNanos());
+        lastNanos = Math.max(lastNanos, flow.getLastBurstStartNanos());
+      }
+      System.out.println("stream concluded, " + flows.size()
+          + " flows, overall rate: "
+          + Utils.commaIntegerFormat(lastNanos > firstNanos ?
+              Utils.calculateRate(byteCount, lastNanos - firstNanos) : 0)
+          + " bps");
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import com.firebind.cbr.bench.RegressionSuite;
+
+/**
+ * Main program for the loopback accuracy and CPU cost regression suite
+ *
+ * <p>Compares against the baseline file and exits with status 1 when any run
+ * regressed, or when there is no baseline. With <code>--record</code> the
+ * results are stored as the new baseline instead.</p>
+ *
+ * @author agent
+ */
+public class Regress {
+
+  /**
+   * Usage help text
+   */
+  final static String USAGE = "Usage: Regress <baselineFile> [--record] "
+      + "[durationSeconds]";
+
+  /**
+   * @param args
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+
+    if (args.length < 1) {
+      System.out.println(USAGE);
+      return;
+    }
+
+    File baselineFile = new File(args[0]);
+    boolean record = false;
+    RegressionSuite suite = new RegressionSuite();
+    for (int i = 1; i < args.length; i++) {
+      if ("--record".equals(args[i])) {
+        record = true;
+      } else if (args[i].matches("\\d+")) {
+        suite.setDurationSeconds(Integer.parseInt(args[i]));
+      } else {
+        System.out.println(USAGE);
+        return;
+      }
+    }
+
+    if (record) {
+      suite.record(baselineFile, System.out);
+      System.out.println("baseline recorded in " + baselineFile);
+      return;
+    }
+    if (!baselineFile.isFile()) {
+      System.out.println("no baseline in " + baselineFile
+                         + ", record one with --record");
+      System.exit(1);
+    }
+
+    List<String> regressions = suite.compare(baselineFile, System.out);
+    for (String regression : regressions) {
+      System.out.println("REGRESSION " + regression);
+    }
+    if (!regressions.isEmpty()) {
+      System.exit(1);
+    }
+    System.out.println("no regressions against " + baselineFile);
+  }
+
+}
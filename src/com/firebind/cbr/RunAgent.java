@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import com.firebind.cbr.coordinate.Agent;
+
+/**
+ * Main program for an agent that runs its share of a scenario for a
+ * {@link Coordinate coordinator}
+ *
+ * <p>The agent serves one coordinator after the other until it is
+ * killed.</p>
+ *
+ * @author agent
+ */
+public class RunAgent {
+
+  /**
+   * Usage help text
+   */
+  final static String USAGE = "Usage: RunAgent <port> [listenAddress]";
+
+  /**
+   * @param args
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+
+    if (args.length < 1) {
+      System.out.println(USAGE);
+      return;
+    }
+
+    int port = Integer.parseInt(args[0]);
+    Agent agent = new Agent(args.length > 1 ?
+        new InetSocketAddress(args[1], port) : new InetSocketAddress(port));
+    agent.bind();
+    System.out.println("agent listening on " + agent.getLocalAddress());
+    agent.serve();
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import com.firebind.cbr.scenario.FlowRun;
+import com.firebind.cbr.scenario.Scenario;
+import com.firebind.cbr.scenario.ScenarioReport;
+import com.firebind.cbr.scenario.ScenarioRunner;
+
+/**
+ * Main program for running many flows at once from a scenario file
+ *
+ * <p>See {@link Scenario} for the file format. All flows run in this JVM and
+ * a combined report is printed once the last flow has finished, followed by
+ * the load on each pooled channel.</p>
+ *
+ * @author agent
+ */
+public class RunScenario {
+
+  /**
+   * Usage help text
+   */
+  final static String USAGE = "Usage: RunScenario <scenarioFile> "
+      + "[flowsPerChannel] [--channels <count>] "
+      + "[--source-ports <first-last>]";
+
+  /**
+   * @param args
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  public static void main(String[] args)
+      throws IOException, InterruptedException {
+
+    if (args.length < 1) {
+      System.out.println(USAGE);
+      return;
+    }
+
+    Scenario scenario = Scenario.fromFile(new File(args[0]));
+    ScenarioRunner runner = new ScenarioRunner();
+    for (int i = 1; i < args.length; i++) {
+      if (i == 1 && args[i].matches("\\d+")) {
+        runner.setFlowsPerChannel(Integer.parseInt(args[i]));
+      } else if ("--channels".equals(args[i]) && i + 1 < args.length
+                 && args[i + 1].matches("\\d+")) {
+        runner.setChannelCount(Integer.parseInt(args[++i]));
+      } else if ("--source-ports".equals(args[i]) && i + 1 < args.length
+                 && args[i + 1].matches("\\d+(-\\d+)?")) {
+        String[] range = args[++i].split("-");
+        runner.setSourcePorts(Integer.parseInt(range[0]),
+            Integer.parseInt(range[range.length - 1]));
+      } else {
+        System.out.println(USAGE);
+        return;
+      }
+    }
+
+    System.out.println("running " + scenario.getFlowCount() + " flows from "
+                       + args[0]);
+    List<FlowRun> runs = runner.run(scenario);
+    for (FlowRun run : runs) {
+      if (null != run.getFailure()) {
+        System.out.println("line " + run.getSpec().getLineNumber()
+            + " flow " + run.getInstance() + " failed: " + run.getFailure());
+      }
+    }
+    new ScenarioReport(runs).print(System.out);
+    runner.getChannelPool().print(System.out);
+  }
+
+}
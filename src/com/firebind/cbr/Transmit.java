@@ -16,14 +16,23 @@
 
 package com.firebind.cbr;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 
+import com.firebind.cbr.capture.DepartureLog;
+import com.firebind.cbr.capture.PcapWriter;
+import com.firebind.cbr.sleep.DeadlineSleepStrategy;
+import com.firebind.cbr.sleep.SleepStrategy;
 import com.firebind.cbr.sleep.SpinSleepStrategy;
 import com.firebind.cbr.sleep.ThreadSleepStrategy;
+import com.firebind.cbr.transmit.AbstractTransmitter;
+import com.firebind.cbr.transmit.DepartureListener;
 import com.firebind.cbr.transmit.Parameters;
 import com.firebind.cbr.transmit.SendCompareTransmitter;
 import com.firebind.cbr.transmit.SendSleepTransmitter;
-import com.firebind.cbr.transmit.Transmitter;
 
 /**
  * Main program for running the different CBR transmitters
@@ -33,6 +42,14 @@ import com.firebind.cbr.transmit.Transmitter;
  * specify the payload size, rate, duration, address, and port respectively.
  * </p> 
  * 
+ * <p>Trailing options are <code>--pcap &lt;file&gt;</code> to record every
+ * datagram sent into a pcap capture, <code>--log &lt;file&gt;</code> to
+ * record the departure time and size of every datagram for
+ * {@link Analyze}, <code>--no-network</code> to run the pacing without
+ * sending anything (usually combined with <code>--pcap</code>), and
+ * <code>--timer-slack &lt;nanos&gt;</code> to set the timer slack of the
+ * sending thread with <code>ClockNanosleepSleepStrategy</code>.</p>
+ * 
  * @author Jay Houghton
  */
 public class Transmit {
@@ -44,7 +61,41 @@ public class Transmit {
       +"SendSleepTransmitter> "
       +"<datagramPayloadSizeBytes> <rateBitsPerSecondString> "
       +"<durationSecondsString> <targetAddress> <targetPort> "
-      +"[ThreadSleepStrategy|SpinSleepStrategy]";
+      +"[ThreadSleepStrategy|SpinSleepStrategy|DeadlineSleepStrategy|"
+      +"ClockNanosleepSleepStrategy] "
+      +"[--pcap <file>] [--log <file>] [--no-network] "
+      +"[--timer-slack <nanos>]";
+
+  /**
+   * simple class names of every transmitter {@link #createTransmitter}
+   * knows
+   */
+  public final static String[] TRANSMITTER_TYPES = {
+    "SendCompareTransmitter", "SendSleepTransmitter"
+  };
+
+  /**
+   * simple class names of every sleep strategy {@link #createSleepStrategy}
+   * knows
+   */
+  public final static String[] SLEEP_STRATEGY_TYPES = {
+    "ThreadSleepStrategy", "SpinSleepStrategy", "DeadlineSleepStrategy",
+    "ClockNanosleepSleepStrategy"
+  };
+
+  /**
+   * sleep strategy using clock_nanosleep, built from a separate source tree
+   * only where the compiler has the Foreign Function &amp; Memory API
+   */
+  static final String CLOCK_NANOSLEEP_CLASS =
+      "com.firebind.cbr.sleep.ClockNanosleepSleepStrategy";
+
+  /**
+   * constructor of the clock_nanosleep strategy taking the timer slack, null
+   * when it was not built or cannot run on this JVM and platform
+   */
+  private static final Constructor<? extends SleepStrategy> CLOCK_NANOSLEEP =
+      clockNanosleep();
 
   /**
    * @param args
@@ -61,26 +112,153 @@ public class Transmit {
     String type = args[0];
     Parameters parameters = Parameters.fromStrings(args[1], args[2], args[3], 
                                                    args[4], args[5]);
-    Transmitter transmitter;
+    String sleepStrategyType = null;
+    long timerSlackNanos = 0;
+    File pcapFile = null;
+    File logFile = null;
+    boolean networkEnabled = true;
+    for (int i = 6; i < args.length; i++) {
+      switch (args[i]) {
+      case "--pcap":
+        if (++i == args.length) {
+          System.out.println(USAGE);
+          return;
+        }
+        pcapFile = new File(args[i]);
+        break;
+      case "--log":
+        if (++i == args.length) {
+          System.out.println(USAGE);
+          return;
+        }
+        logFile = new File(args[i]);
+        break;
+      case "--no-network":
+        networkEnabled = false;
+        break;
+      case "--timer-slack":
+        if (++i == args.length || !args[i].matches("\\d{1,18}")) {
+          System.out.println(USAGE);
+          return;
+        }
+        timerSlackNanos = Long.parseLong(args[i]);
+        break;
+      default:
+        if (null == createSleepStrategy(args[i])) {
+          // unknown option
+          System.out.println(USAGE);
+          return;
+        }
+        sleepStrategyType = args[i];
+      }
+    }
+    SleepStrategy sleepStrategy = null == sleepStrategyType ? null :
+        createSleepStrategy(sleepStrategyType, timerSlackNanos);
+
+    AbstractTransmitter transmitter = createTransmitter(type, sleepStrategy);
+    if (null == transmitter) {
+      // unknown transmitter type
+      System.out.println(USAGE);
+      return;
+    }
+    transmitter.setNetworkEnabled(networkEnabled);
+
+    try (PcapWriter pcap = null == pcapFile ? null : new PcapWriter(pcapFile);
+         DepartureLog log =
+             null == logFile ? null : new DepartureLog(logFile, parameters)) {
+      if (null != pcap && null != log) {
+        transmitter.setDepartureListener(new DepartureListener() {
+          @Override
+          public void departed(long nanoTime, ByteBuffer datagram,
+                               InetSocketAddress source,
+                               InetSocketAddress target) throws IOException {
+            log.departed(nanoTime, datagram, source, target);
+            pcap.departed(nanoTime, datagram, source, target);
+          }
+        });
+      } else {
+        transmitter.setDepartureListener(null != pcap ? pcap : log);
+      }
+      transmitter.transmit(parameters);
+      if (null != log) {
+        log.setDatagramsPerCycle(
+            transmitter.getResult().getDatagramsPerCycle());
+      }
+    }
+  }
+
+  /**
+   * @param type simple class name of the transmitter
+   * @param sleepStrategy sleep strategy for transmitters that sleep, null for
+   *          their default
+   * @return a new transmitter, or null when the type is unknown
+   */
+  public static AbstractTransmitter createTransmitter(
+      String type, SleepStrategy sleepStrategy) {
     switch (type) {
     case "SendCompareTransmitter":
-      transmitter = new SendCompareTransmitter();
-      break;
+      return new SendCompareTransmitter();
     case "SendSleepTransmitter":
-      transmitter = new SendSleepTransmitter();
-      if (args.length > 6) {
-        ((SendSleepTransmitter)transmitter)
-          .setSleepStrategy(
-              "ThreadSleepStrategy".equals(args[6]) ? 
-                  new ThreadSleepStrategy() : new SpinSleepStrategy());
+      SendSleepTransmitter transmitter = new SendSleepTransmitter();
+      transmitter.setSleepStrategy(sleepStrategy);
+      return transmitter;
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * @param type simple class name of the sleep strategy
+   * @return a new sleep strategy, or null when the type is unknown
+   */
+  public static SleepStrategy createSleepStrategy(String type) {
+    return createSleepStrategy(type, 0);
+  }
+
+  /**
+   * @param type simple class name of the sleep strategy
+   * @param timerSlackNanos timer slack for the sleeping thread, only used by
+   *          <code>ClockNanosleepSleepStrategy</code>, 0 to leave it as it is
+   * @return a new sleep strategy, or null when the type is unknown. A
+   *         <code>ClockNanosleepSleepStrategy</code> that was not built or
+   *         cannot run here is a {@link DeadlineSleepStrategy} instead.
+   */
+  public static SleepStrategy createSleepStrategy(String type,
+                                                  long timerSlackNanos) {
+    switch (type) {
+    case "ThreadSleepStrategy":
+      return new ThreadSleepStrategy();
+    case "SpinSleepStrategy":
+      return new SpinSleepStrategy();
+    case "DeadlineSleepStrategy":
+      return new DeadlineSleepStrategy();
+    case "ClockNanosleepSleepStrategy":
+      if (null != CLOCK_NANOSLEEP) {
+        try {
+          return CLOCK_NANOSLEEP.newInstance(timerSlackNanos);
+        } catch (ReflectiveOperationException | LinkageError e) {
+          // fall through to the deadline strategy
+        }
       }
-      break;
+      return new DeadlineSleepStrategy();
     default:
-      // unknown transmitter type
-      System.out.println(USAGE);
-      return;
+      return null;
+    }
+  }
+
+  /**
+   * Look up the clock_nanosleep strategy. It is compiled for a newer Java
+   * than the rest and fails to load, or to initialize, wherever it cannot
+   * work.
+   */
+  private static Constructor<? extends SleepStrategy> clockNanosleep() {
+    try {
+      return Class.forName(CLOCK_NANOSLEEP_CLASS)
+          .asSubclass(SleepStrategy.class)
+          .getConstructor(long.class);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
     }
-    transmitter.transmit(parameters);
   }
 
 }
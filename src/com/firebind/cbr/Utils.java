@@ -16,6 +16,12 @@
 
 package com.firebind.cbr;
 
+import java.net.DatagramSocket;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.text.DecimalFormat;
 import java.util.Random;
@@ -162,4 +168,31 @@ public class Utils {
     return (double) ((observedRate * 100d) / expectedRate);
   }
 
+  /**
+   * Find the local IP address the operating system would use to reach a
+   * target. Connecting a UDP socket only consults the routing table, nothing
+   * is sent on the wire.
+   * 
+   * @param target IP address and port to reach
+   * @return local address, or the wildcard address of the target's family
+   *         when no route can be determined
+   */
+  public static InetAddress localAddressFor(InetSocketAddress target) {
+    try (DatagramSocket socket = new DatagramSocket()) {
+      socket.connect(target);
+      InetAddress local = socket.getLocalAddress();
+      if (null != local && !local.isAnyLocalAddress()) {
+        return local;
+      }
+    } catch (SocketException | IllegalArgumentException e) {
+      // no route to target, fall through to the wildcard address
+    }
+    try {
+      return InetAddress.getByAddress(
+          new byte[target.getAddress() instanceof Inet6Address ? 16 : 4]);
+    } catch (UnknownHostException e) {
+      throw new IllegalStateException(e); // only thrown for illegal lengths
+    }
+  }
+
 }
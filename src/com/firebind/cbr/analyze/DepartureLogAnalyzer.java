@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.analyze;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+import com.firebind.cbr.Utils;
+import com.firebind.cbr.capture.DepartureLog;
+import com.firebind.cbr.transmit.CycleSchedule;
+
+/**
+ * Streams through a {@link DepartureLog} file and works out how well the
+ * stream kept to its schedule:
+ * <ul>
+ * <li>histogram of the time between departures</li>
+ * <li>rate over a sliding window</li>
+ * <li>bursts, runs of departures closer together than a gap threshold</li>
+ * <li>deviation of each cycle's first departure from the exact cycle
+ *     schedule, see {@link CycleSchedule}. The transmitters send a cycle's
+ *     datagrams back to back at the start of its period, so the start of
+ *     each cycle is what the pacing controls. Logs that don't record the
+ *     datagrams per cycle count every departure as a cycle of its own.</li>
+ * </ul>
+ * Memory use is constant, so logs of billions of departures are fine.
+ *
+ * @author agent
+ *
+ */
+public class DepartureLogAnalyzer {
+
+  /**
+   * how much of the file is mapped at once
+   */
+  static final long WINDOW_SIZE_BYTES = 256L << 20;
+
+  /**
+   * number of steps the sliding rate window advances by per window length
+   */
+  static final int SLIDING_STEPS = 10;
+
+  /**
+   * length of the sliding rate window in nanoseconds
+   */
+  protected long rateWindowNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+  /**
+   * departures closer than this belong to the same burst, 0 means a quarter
+   * of the ideal time between departures
+   */
+  protected long burstGapNanos;
+
+  /*
+   * From the log header
+   */
+  protected long rateBitsPerSecond;
+  protected long datagramPayloadSizeBytes;
+  protected long recordCount;
+  protected long datagramsPerCycle;
+
+  /*
+   * Results
+   */
+  protected final Histogram interDeparture = new Histogram();
+  protected final Histogram windowRate = new Histogram();
+  protected final Histogram burstLength = new Histogram();
+  protected final Histogram absoluteDeviation = new Histogram();
+  protected long minimumDeviation = Long.MAX_VALUE;
+  protected long maximumDeviation = Long.MIN_VALUE;
+  protected long finalDeviation;
+  protected long maximumBurstBytes;
+  protected long byteCount;
+  protected long durationNanos;
+
+  /**
+   * when the last burst, normally the last cycle, started relative to the
+   * first departure, and the bytes sent before it
+   */
+  protected long lastBurstStartNanos;
+  protected long bytesBeforeLastBurst;
+
+  /**
+   * Read the whole log and compute the results
+   *
+   * @param file log written by {@link DepartureLog}
+   * @throws IOException when the file cannot be read or is not a log
+   */
+  public void analyze(File file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      ByteBuffer header = ByteBuffer.allocate(DepartureLog.HEADER_SIZE);
+      while (header.hasRemaining()) {
+        if (channel.read(header, header.position()) < 0) {
+          throw new IOException(file + " is too short to be a log");
+        }
+      }
+      if (header.getLong(0) != DepartureLog.MAGIC) {
+        throw new IOException(file + " is not a departure log");
+      }
+      rateBitsPerSecond = header.getLong(24);
+      datagramPayloadSizeBytes = header.getLong(32);
+      recordCount = Math.min(header.getLong(40),
+          (channel.size() - DepartureLog.HEADER_SIZE) / 8);
+      datagramsPerCycle = Math.max(header.getLong(48), 1);
+      CycleSchedule schedule = new CycleSchedule(
+          datagramPayloadSizeBytes * 8 * datagramsPerCycle, rateBitsPerSecond);
+
+      double idealGapNanos =
+          datagramPayloadSizeBytes * 8 * 1000000000d / rateBitsPerSecond;
+      long burstGap = burstGapNanos > 0 ?
+          burstGapNanos : Math.max((long) (idealGapNanos / 4), 1);
+      long subWindowNanos = Math.max(rateWindowNanos / SLIDING_STEPS, 1);
+      long[] subWindowBytes = new long[SLIDING_STEPS];
+
+      long first = 0;
+      long previous = 0;
+      long burstPackets = 0;
+      long burstBytes = 0;
+      long subWindow = 0;
+      long subWindowsCompleted = 0;
+      long slidingBytes = 0;
+
+      long offset = DepartureLog.HEADER_SIZE;
+      long end = DepartureLog.HEADER_SIZE + recordCount * 8;
+      for (long record = 0; offset < end; ) {
+        long length = Math.min(WINDOW_SIZE_BYTES, end - offset);
+        MappedByteBuffer window =
+            channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        offset += length;
+
+        for (; window.hasRemaining(); record++) {
+          long packed = window.getLong();
+          long time = packed & DepartureLog.TIME_MASK;
+          int size = (int) (packed >>> DepartureLog.TIME_BITS);
+
+          if (record == 0) {
+            first = time;
+            burstPackets = 1;
+            burstBytes = size;
+            lastBurstStartNanos = 0;
+            bytesBeforeLastBurst = 0;
+          } else {
+            long gap = time - previous;
+            interDeparture.record(gap);
+            if (gap < burstGap) {
+              burstPackets++;
+              burstBytes += size;
+            } else {
+              endBurst(burstPackets, burstBytes);
+              burstPackets = 1;
+              burstBytes = size;
+              lastBurstStartNanos = time - first;
+              bytesBeforeLastBurst = byteCount;
+            }
+          }
+
+          if (record % datagramsPerCycle == 0) {
+            long deviation = 0;
+            if (record == 0) {
+              schedule.start(time);
+            } else {
+              deviation = time - schedule.next();
+            }
+            minimumDeviation = Math.min(minimumDeviation, deviation);
+            maximumDeviation = Math.max(maximumDeviation, deviation);
+            absoluteDeviation.record(Math.abs(deviation));
+            finalDeviation = deviation;
+          }
+
+          long currentSubWindow = (time - first) / subWindowNanos;
+          while (subWindow < currentSubWindow) {
+            int slot = (int) (subWindow % SLIDING_STEPS);
+            slidingBytes += subWindowBytes[slot];
+            if (++subWindowsCompleted >= SLIDING_STEPS) {
+              windowRate.record((long) Utils.calculateRate(
+                  slidingBytes, subWindowNanos * SLIDING_STEPS));
+              slidingBytes -= subWindowBytes[(int)
+                  ((subWindow + 1) % SLIDING_STEPS)];
+            }
+            subWindow++;
+            subWindowBytes[(int) (subWindow % SLIDING_STEPS)] = 0;
+          }
+          subWindowBytes[(int) (subWindow % SLIDING_STEPS)] += size;
+
+          byteCount += size;
+          previous = time;
+        }
+      }
+      endBurst(burstPackets, burstBytes);
+      durationNanos = previous - first;
+    }
+  }
+
+  private void endBurst(long packets, long bytes) {
+    if (packets > 1) {
+      burstLength.record(packets);
+      maximumBurstBytes = Math.max(maximumBurstBytes, bytes);
+    }
+  }
+
+  /**
+   * Print the results of {@link #analyze(File)}
+   *
+   * @param out where to print
+   */
+  public void print(PrintStream out) {
+    out.println(Utils.commaIntegerFormat(recordCount) + " departures, "
+        + Utils.commaIntegerFormat(byteCount) + " bytes over "
+        + Utils.tenths(durationNanos / 1000000000d) + "s, configured "
+        + Utils.commaIntegerFormat(rateBitsPerSecond) + " bps with "
+        + datagramPayloadSizeBytes + " byte payloads, "
+        + datagramsPerCycle + " per cycle");
+    if (lastBurstStartNanos > 0) {
+      /*
+       * The bytes of the last burst go out at the start of its period, so
+       * counting them over the span up to the last departure would count N
+       * cycles of bytes over N - 1 periods. Leave the last burst out.
+       */
+      double rate =
+          Utils.calculateRate(bytesBeforeLastBurst, lastBurstStartNanos);
+      out.println("overall rate " + Utils.commaIntegerFormat(rate) + " bps ("
+          + Utils.tenths(Utils.calculateAccuracy(rate, rateBitsPerSecond))
+          + "%)");
+    }
+
+    out.println("inter-departure time (ns): " + summary(interDeparture));
+    interDeparture.print(out, "ns");
+
+    out.println("rate over sliding " + Utils.tenths(rateWindowNanos / 1e6)
+        + "ms window (bps): " + summary(windowRate));
+
+    out.println("bursts: " + Utils.commaIntegerFormat(burstLength.getCount())
+        + ", length (packets): " + summary(burstLength)
+        + ", largest " + Utils.commaIntegerFormat(maximumBurstBytes)
+        + " bytes");
+
+    out.println("cycle start deviation from schedule (ns): min "
+        + Utils.commaIntegerFormat(minimumDeviation) + " max "
+        + Utils.commaIntegerFormat(maximumDeviation) + " final "
+        + Utils.commaIntegerFormat(finalDeviation) + ", absolute "
+        + summary(absoluteDeviation));
+  }
+
+  private static String summary(Histogram histogram) {
+    return "min " + Utils.commaIntegerFormat(histogram.getMinimum())
+        + " mean " + Utils.commaIntegerFormat(histogram.getMean())
+        + " stddev " + Utils.commaIntegerFormat(
+            histogram.getStandardDeviation())
+        + " p50 " + Utils.commaIntegerFormat(
+            histogram.getValueAtPercentile(50))
+        + " p99 " + Utils.commaIntegerFormat(
+            histogram.getValueAtPercentile(99))
+        + " p99.9 " + Utils.commaIntegerFormat(
+            histogram.getValueAtPercentile(99.9))
+        + " max " + Utils.commaIntegerFormat(histogram.getMaximum());
+  }
+
+  /**
+   * @param rateWindowNanos length of the sliding rate window in nanoseconds
+   */
+  public void setRateWindowNanos(long rateWindowNanos) {
+    this.rateWindowNanos = rateWindowNanos;
+  }
+
+  /**
+   * @param burstGapNanos departures closer than this belong to the same
+   * burst, 0 for a quarter of the ideal time between departures
+   */
+  public void setBurstGapNanos(long burstGapNanos) {
+    this.burstGapNanos = burstGapNanos;
+  }
+
+}
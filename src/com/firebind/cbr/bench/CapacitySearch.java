@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import com.firebind.cbr.Utils;
+
+/**
+ * Finds, for each payload size, the highest rate a transmitter and sleep
+ * strategy can hold on this host. The rate is doubled until a run fails,
+ * then the range between the last good and the first failed rate is
+ * bisected down to a resolution. A run passes when its accuracy is within
+ * the tolerance of 100%, its p99 schedule deviation is under the limit and the
+ * transmit thread stays within the CPU budget. A failed run is repeated
+ * once before it counts, so one noisy run does not end the ramp early.
+ *
+ * <p>Runs go over loopback against an in-process receiver, see
+ * {@link LoopbackBench}, so the receiver competes with the transmitter for
+ * the host. The capacities found are a lower bound of what the host can
+ * send to a remote receiver.</p>
+ *
+ * @author agent
+ *
+ */
+public class CapacitySearch {
+
+  /**
+   * payload sizes to search in bytes
+   */
+  protected int[] payloadSizes = { 64, 200, 512, 1200, 1472 };
+
+  /**
+   * simple class names of the transmitter and sleep strategy to search with
+   */
+  protected final String transmitterType;
+  protected final String sleepStrategyType;
+
+  /**
+   * rate the ramp starts at, and never goes beyond, in bits per second
+   */
+  protected long minimumRate = 1000000L;
+  protected long maximumRate = 100000000000L;
+
+  /**
+   * bisection stops once the failed rate is within this fraction of the good
+   * one
+   */
+  protected double resolution = 0.05;
+
+  /**
+   * how long each run transmits
+   */
+  protected int durationSeconds = 2;
+
+  /**
+   * largest allowed distance of accuracy from 100%, in percentage points
+   */
+  protected double accuracyTolerance = 2.0;
+
+  /**
+   * largest allowed p99 deviation of cycle starts from the schedule in
+   * nanoseconds, 0 for no limit. Off by default, how late cycles start
+   * depends more on the sleep strategy than on the rate.
+   */
+  protected long maximumDeviationNanos;
+
+  /**
+   * largest allowed CPU use of the transmit thread, in percent
+   */
+  protected double cpuBudgetPercent = 100;
+
+  protected final LoopbackBench bench = new LoopbackBench();
+
+  /**
+   * @param transmitterType simple class name of the transmitter
+   * @param sleepStrategyType simple class name of the sleep strategy, or null
+   */
+  public CapacitySearch(String transmitterType, String sleepStrategyType) {
+    super();
+    this.transmitterType = transmitterType;
+    this.sleepStrategyType = sleepStrategyType;
+  }
+
+  /**
+   * Search every payload size
+   *
+   * @param out where to print progress
+   * @return highest passing rate per payload size in bits per second, 0 when
+   *         not even the minimum rate passed
+   * @throws IOException when a run fails
+   */
+  public Map<Integer, Long> run(PrintStream out) throws IOException {
+    Map<Integer, Long> capacities = new LinkedHashMap<Integer, Long>();
+    for (int payloadSize : payloadSizes) {
+      long capacity = search(payloadSize, out);
+      out.println(payloadSize + " bytes: capacity "
+                  + Utils.commaIntegerFormat(capacity) + " bps");
+      capacities.put(payloadSize, capacity);
+    }
+    return capacities;
+  }
+
+  /**
+   * Ramp then bisect for one payload size
+   *
+   * @param payloadSize payload size in bytes
+   * @param out where to print progress
+   * @return highest passing rate in bits per second, 0 when none passed
+   * @throws IOException when a run fails
+   */
+  public long search(int payloadSize, PrintStream out) throws IOException {
+    long good = 0;
+    long bad = 0;
+    for (long rate = minimumRate; ; rate = Math.min(rate * 2, maximumRate)) {
+      if (!passes(payloadSize, rate, out)) {
+        bad = rate;
+        break;
+      }
+      good = rate;
+      if (rate >= maximumRate) {
+        return good;
+      }
+    }
+    if (good == 0) {
+      return 0;
+    }
+    while (bad - good > good * resolution) {
+      long rate = good + (bad - good) / 2;
+      if (passes(payloadSize, rate, out)) {
+        good = rate;
+      } else {
+        bad = rate;
+      }
+    }
+    return good;
+  }
+
+  /**
+   * Judge a rate, giving it a second run when the first fails
+   */
+  private boolean passes(int payloadSize, long rate, PrintStream out)
+      throws IOException {
+    return run(payloadSize, rate, out) || run(payloadSize, rate, out);
+  }
+
+  /**
+   * One run, judged against the tolerances
+   */
+  private boolean run(int payloadSize, long rate, PrintStream out)
+      throws IOException {
+    Measurement measurement = bench.measure(transmitterType,
+        sleepStrategyType, payloadSize, rate, durationSeconds);
+    boolean passes =
+        Math.abs(measurement.getAccuracy() - 100) <= accuracyTolerance
+        && (maximumDeviationNanos <= 0
+            || measurement.getDeviationP99Nanos() <= maximumDeviationNanos)
+        && measurement.getCpuPercent() <= cpuBudgetPercent;
+    out.println("  " + payloadSize + " bytes @ "
+        + Utils.commaIntegerFormat(rate) + " bps: " + measurement
+        + (passes ? "" : " FAIL"));
+    return passes;
+  }
+
+  /**
+   * Store a capacity map as a properties file, one payload size per key
+   *
+   * @param capacities highest rate per payload size from
+   *          {@link #run(PrintStream)}
+   * @param file where to store it
+   * @throws IOException when the file cannot be written
+   */
+  public void store(Map<Integer, Long> capacities, File file)
+      throws IOException {
+    Properties map = new Properties();
+    for (Map.Entry<Integer, Long> capacity : capacities.entrySet()) {
+      map.setProperty(capacity.getKey().toString(),
+                      capacity.getValue().toString());
+    }
+    try (OutputStream stream = new FileOutputStream(file)) {
+      map.store(stream, "payload-bytes=rate-bps with " + transmitterType
+          + (null == sleepStrategyType ? "" : " " + sleepStrategyType)
+          + ", accuracy +/-" + accuracyTolerance + "%, deviation p99 <= "
+          + maximumDeviationNanos + " ns, cpu <= " + cpuBudgetPercent + "%");
+    }
+  }
+
+  /**
+   * @param file capacity map written by {@link #store(Map, File)}
+   * @return highest rate per payload size in bits per second, by payload
+   * size
+   * @throws IOException when the file cannot be read
+   */
+  public static TreeMap<Integer, Long> load(File file) throws IOException {
+    Properties map = new Properties();
+    try (InputStream stream = new FileInputStream(file)) {
+      map.load(stream);
+    }
+    TreeMap<Integer, Long> capacities = new TreeMap<Integer, Long>();
+    for (String payloadSize : map.stringPropertyNames()) {
+      capacities.put(Integer.valueOf(payloadSize),
+                     Long.valueOf(map.getProperty(payloadSize).trim()));
+    }
+    return capacities;
+  }
+
+  /**
+   * @param payloadSizes payload sizes to search in bytes
+   */
+  public void setPayloadSizes(int[] payloadSizes) {
+    this.payloadSizes = payloadSizes.clone();
+  }
+
+  /**
+   * @param durationSeconds how long each run transmits
+   */
+  public void setDurationSeconds(int durationSeconds) {
+    this.durationSeconds = durationSeconds;
+  }
+
+  /**
+   * @param accuracyTolerance largest allowed distance of accuracy from 100%,
+   * in percentage points
+   */
+  public void setAccuracyTolerance(double accuracyTolerance) {
+    this.accuracyTolerance = accuracyTolerance;
+  }
+
+  /**
+   * @param maximumDeviationNanos largest allowed p99 deviation of cycle
+   * starts from the schedule in nanoseconds, 0 for no limit
+   */
+  public void setMaximumDeviationNanos(long maximumDeviationNanos) {
+    this.maximumDeviationNanos = maximumDeviationNanos;
+  }
+
+  /**
+   * @param cpuBudgetPercent largest allowed CPU use of the transmit thread,
+   * in percent
+   */
+  public void setCpuBudgetPercent(double cpuBudgetPercent) {
+    this.cpuBudgetPercent = cpuBudgetPercent;
+  }
+
+  /**
+   * @param minimumRate rate the ramp starts at in bits per second
+   * @param maximumRate rate the ramp stops at in bits per second
+   */
+  public void setRateRange(long minimumRate, long maximumRate) {
+    this.minimumRate = Math.max(minimumRate, 1);
+    this.maximumRate = Math.max(maximumRate, this.minimumRate);
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import com.firebind.cbr.Transmit;
+import com.firebind.cbr.Utils;
+import com.firebind.cbr.receive.FlowStatistics;
+import com.firebind.cbr.receive.Receiver;
+import com.firebind.cbr.transmit.AbstractTransmitter;
+import com.firebind.cbr.transmit.Parameters;
+import com.firebind.cbr.transmit.Result;
+
+/**
+ * Runs a transmitter against a receiver in the same process over the
+ * loopback interface and measures what arrived and what it cost.
+ *
+ * <p>The cost is the CPU time of the transmit thread rather than of the
+ * process, which would also charge the transmitter for the receiver running
+ * next to it. The send path doesn't allocate, so garbage collection and
+ * other JVM threads add little beyond start up.</p>
+ *
+ * @author agent
+ *
+ */
+public class LoopbackBench {
+
+  /**
+   * how long to wait for datagrams still in flight after transmitting
+   */
+  static final long DRAIN_MILLIS = 250;
+
+  /**
+   * Transmit once and measure
+   *
+   * @param transmitterType simple class name of the transmitter
+   * @param sleepStrategyType simple class name of the sleep strategy, or null
+   * @param datagramPayloadSizeBytes size of the datagram payload in bytes
+   * @param rateBitsPerSecond rate to transmit at in bits per second
+   * @param durationSeconds how long to transmit
+   * @return what the receiver saw and the transmit thread's CPU use
+   * @throws IOException when a socket cannot be opened or the send fails
+   */
+  public Measurement measure(String transmitterType,
+                             String sleepStrategyType,
+                             int datagramPayloadSizeBytes,
+                             long rateBitsPerSecond,
+                             int durationSeconds) throws IOException {
+    AbstractTransmitter transmitter = Transmit.createTransmitter(
+        transmitterType, null == sleepStrategyType ?
+            null : Transmit.createSleepStrategy(sleepStrategyType));
+    if (null == transmitter) {
+      throw new IllegalArgumentException(
+          "unknown transmitter " + transmitterType);
+    }
+    transmitter.setPrintResult(false);
+
+    Receiver receiver = new Receiver(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+    receiver.setSchedule(Utils.calculateDatagramsPerCycle(
+        datagramPayloadSizeBytes, rateBitsPerSecond, 0.250),
+        datagramPayloadSizeBytes, rateBitsPerSecond);
+    receiver.start();
+    long cpuNanos;
+    long wallNanos;
+    try {
+      Parameters parameters = new Parameters(datagramPayloadSizeBytes,
+          rateBitsPerSecond, durationSeconds,
+          receiver.getListenAddresses().get(0));
+
+      ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      long cpuStart = threads.getCurrentThreadCpuTime();
+      long wallStart = System.nanoTime();
+      transmitter.transmit(parameters);
+      wallNanos = System.nanoTime() - wallStart;
+      cpuNanos = threads.getCurrentThreadCpuTime() - cpuStart;
+
+      Thread.sleep(DRAIN_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      stopQuietly(receiver, e);
+      throw new IOException(e);
+    } catch (IOException | RuntimeException e) {
+      stopQuietly(receiver, e);
+      throw e;
+    }
+    List<FlowStatistics> flows = receiver.stop();
+
+    /*
+     * Rate over the transmit period rather than first to last arrival, which
+     * overstates slow rates that only send a few cycles per run.
+     */
+    Result result = transmitter.getResult();
+    double receivedRate = flows.isEmpty() ? 0 : Utils.calculateRate(
+        flows.get(0).getByteCount(),
+        result.getStopNanos() - result.getStartNanos());
+    return new Measurement(receivedRate,
+        Utils.calculateAccuracy(receivedRate, rateBitsPerSecond),
+        receiver.getScheduleDeviation().getValueAtPercentile(99),
+        cpuNanos * 100d / wallNanos);
+  }
+
+  /**
+   * Stop the receiver after a failed run without hiding why the run failed
+   */
+  private static void stopQuietly(Receiver receiver, Exception failure) {
+    try {
+      receiver.stop();
+    } catch (IOException e) {
+      failure.addSuppressed(e);
+    }
+  }
+
+}
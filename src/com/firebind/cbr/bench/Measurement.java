@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.bench;
+
+import java.util.Locale;
+
+import com.firebind.cbr.Utils;
+
+/**
+ * Data object for what one loopback run achieved, as seen by the receiver
+ *
+ * @author agent
+ *
+ */
+public class Measurement {
+
+  /**
+   * rate achieved at the receiver in bits per second
+   */
+  protected final double receivedRate;
+
+  /**
+   * received rate with respect to configured rate (percent)
+   */
+  protected final double accuracy;
+
+  /**
+   * 99th percentile deviation of cycle starts from the schedule in
+   * nanoseconds
+   */
+  protected final long deviationP99Nanos;
+
+  /**
+   * CPU time of the transmit thread as a percentage of wall time
+   */
+  protected final double cpuPercent;
+
+  /**
+   * @param receivedRate rate achieved at the receiver in bits per second
+   * @param accuracy received rate with respect to configured rate (percent)
+   * @param deviationP99Nanos 99th percentile deviation of cycle starts from the schedule in
+   *          nanoseconds
+   * @param cpuPercent CPU time of the transmit thread as a percentage of
+   *          wall time
+   */
+  public Measurement(double receivedRate,
+                     double accuracy,
+                     long deviationP99Nanos,
+                     double cpuPercent) {
+    super();
+    this.receivedRate = receivedRate;
+    this.accuracy = accuracy;
+    this.deviationP99Nanos = deviationP99Nanos;
+    this.cpuPercent = cpuPercent;
+  }
+
+  /**
+   * @return rate achieved at the receiver in bits per second
+   */
+  public double getReceivedRate() {
+    return receivedRate;
+  }
+
+  /**
+   * @return received rate with respect to configured rate (percent)
+   */
+  public double getAccuracy() {
+    return accuracy;
+  }
+
+  /**
+   * @return 99th percentile deviation of cycle starts from the schedule in
+   * nanoseconds
+   */
+  public long getDeviationP99Nanos() {
+    return deviationP99Nanos;
+  }
+
+  /**
+   * @return CPU time of the transmit thread as a percentage of wall time
+   */
+  public double getCpuPercent() {
+    return cpuPercent;
+  }
+
+  /**
+   * @return the figures in the form used by baseline files, always with a
+   * decimal point so {@link #fromBaseline(String)} reads them in any locale
+   */
+  public String toBaseline() {
+    return String.format(Locale.ROOT, "%.0f %.2f %d %.2f", receivedRate,
+                         accuracy, deviationP99Nanos, cpuPercent);
+  }
+
+  /**
+   * @param value figures as written by {@link #toBaseline()}
+   * @return the parsed measurement
+   */
+  public static Measurement fromBaseline(String value) {
+    String[] fields = value.trim().split("\\s+");
+    return new Measurement(Double.parseDouble(fields[0]),
+                           Double.parseDouble(fields[1]),
+                           Long.parseLong(fields[2]),
+                           Double.parseDouble(fields[3]));
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return Utils.commaIntegerFormat(receivedRate) + " bps ("
+        + Utils.tenths(accuracy) + "%), deviation p99 "
+        + Utils.commaIntegerFormat(deviationP99Nanos) + " ns, cpu "
+        + Utils.tenths(cpuPercent) + "%";
+  }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.firebind.cbr.Transmit;
+import com.firebind.cbr.Utils;
+import com.firebind.cbr.transmit.SendSleepTransmitter;
+
+/**
+ * Runs every transmitter and sleep strategy combination over a matrix of
+ * payload sizes and rates on loopback, and compares the results with a
+ * stored baseline. A run regresses when its accuracy moves further from
+ * 100%, in either direction, or its schedule deviation or CPU use grows, by
+ * more than the tolerances.
+ *
+ * <p>Baselines are machine specific, record one per host with
+ * {@link #record(File, PrintStream)}.</p>
+ *
+ * @author agent
+ *
+ */
+public class RegressionSuite {
+
+  /**
+   * payload sizes to run in bytes
+   */
+  protected int[] payloadSizes = { 200, 1200 };
+
+  /**
+   * rates to run in bits per second
+   */
+  protected long[] rates = { 1000000L, 10000000L, 100000000L };
+
+  /**
+   * how long each run transmits
+   */
+  protected int durationSeconds = 2;
+
+  /**
+   * allowed growth of the distance between accuracy and 100%, in percentage
+   * points
+   */
+  protected double accuracyTolerance = 2.0;
+
+  /**
+   * allowed relative growth of p99 schedule deviation, plus an absolute
+   * allowance since small deviations are noisy. Percentiles come from
+   * power of two histogram buckets, so the tolerance must allow more than
+   * one bucket of growth.
+   */
+  protected double deviationTolerance = 2.0;
+  protected long deviationAllowanceNanos = 500000;
+
+  /**
+   * allowed growth in CPU use, in percentage points
+   */
+  protected double cpuTolerance = 10.0;
+
+  protected final LoopbackBench bench = new LoopbackBench();
+
+  /**
+   * Run the whole matrix
+   *
+   * @param out where to print progress
+   * @return measurement per run, keyed by run name
+   * @throws IOException when a run fails
+   */
+  public Map<String, Measurement> run(PrintStream out) throws IOException {
+    Map<String, Measurement> measurements =
+        new LinkedHashMap<String, Measurement>();
+    for (String[] combination : combinations()) {
+      for (int payloadSize : payloadSizes) {
+        for (long rate : rates) {
+          String name = combination[0]
+              + (null == combination[1] ? "" : "." + combination[1])
+              + "." + payloadSize + "." + rate;
+          Measurement measurement = bench.measure(combination[0],
+              combination[1], payloadSize, rate, durationSeconds);
+          out.println(name + ": " + measurement);
+          measurements.put(name, measurement);
+        }
+      }
+    }
+    return measurements;
+  }
+
+  /**
+   * Run the matrix and store the results as the new baseline
+   *
+   * @param baselineFile where to store the baseline
+   * @param out where to print progress
+   * @throws IOException when a run fails or the file cannot be written
+   */
+  public void record(File baselineFile, PrintStream out) throws IOException {
+    Properties baseline = new Properties();
+    for (Map.Entry<String, Measurement> entry : run(out).entrySet()) {
+      baseline.setProperty(entry.getKey(), entry.getValue().toBaseline());
+    }
+    try (OutputStream stream = new FileOutputStream(baselineFile)) {
+      baseline.store(stream, "received-bps accuracy-% deviation-p99-ns cpu-%");
+    }
+  }
+
+  /**
+   * Run the matrix and compare with a stored baseline
+   *
+   * @param baselineFile baseline written by {@link #record(File, PrintStream)}
+   * @param out where to print progress and regressions
+   * @return regressions found, empty when everything is within tolerance
+   * @throws IOException when a run fails or the file cannot be read
+   */
+  public List<String> compare(File baselineFile, PrintStream out)
+      throws IOException {
+    Properties baseline = new Properties();
+    try (InputStream stream = new FileInputStream(baselineFile)) {
+      baseline.load(stream);
+    }
+
+    List<String> regressions = new ArrayList<String>();
+    for (Map.Entry<String, Measurement> entry : run(out).entrySet()) {
+      String expected = baseline.getProperty(entry.getKey());
+      if (null == expected) {
+        out.println(entry.getKey() + ": not in baseline, skipped");
+        continue;
+      }
+      Measurement before = Measurement.fromBaseline(expected);
+      Measurement now = entry.getValue();
+      // over-sending is as wrong as under-sending
+      if (Math.abs(now.getAccuracy() - 100)
+          > Math.abs(before.getAccuracy() - 100) + accuracyTolerance) {
+        regressions.add(entry.getKey() + ": accuracy "
+            + Utils.tenths(now.getAccuracy()) + "% was "
+            + Utils.tenths(before.getAccuracy()) + "%");
+      }
+      if (now.getDeviationP99Nanos() > before.getDeviationP99Nanos()
+          * (1 + deviationTolerance) + deviationAllowanceNanos) {
+        regressions.add(entry.getKey() + ": deviation p99 "
+            + now.getDeviationP99Nanos() + " ns was "
+            + before.getDeviationP99Nanos() + " ns");
+      }
+      if (now.getCpuPercent() > before.getCpuPercent() + cpuTolerance) {
+        regressions.add(entry.getKey() + ": cpu "
+            + Utils.tenths(now.getCpuPercent()) + "% was "
+            + Utils.tenths(before.getCpuPercent()) + "%");
+      }
+    }
+    return regressions;
+  }
+
+  /**
+   * @return every transmitter type paired with every sleep strategy type it
+   * can use, the sleep strategy is null for transmitters that don't sleep
+   */
+  protected List<String[]> combinations() {
+    List<String[]> combinations = new ArrayList<String[]>();
+    for (String transmitterType : Transmit.TRANSMITTER_TYPES) {
+      if (Transmit.createTransmitter(transmitterType, null)
+          instanceof SendSleepTransmitter) {
+        for (String sleepStrategyType : Transmit.SLEEP_STRATEGY_TYPES) {
+          combinations.add(new String[] { transmitterType,
+                                          sleepStrategyType });
+        }
+      } else {
+        combinations.add(new String[] { transmitterType, null });
+      }
+    }
+    return combinations;
+  }
+
+  /**
+   * @param durationSeconds how long each run transmits
+   */
+  public void setDurationSeconds(int durationSeconds) {
+    this.durationSeconds = durationSeconds;
+  }
+
+}
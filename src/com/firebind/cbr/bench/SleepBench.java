@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.bench;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import com.firebind.cbr.Transmit;
+import com.firebind.cbr.Utils;
+import com.firebind.cbr.analyze.Histogram;
+import com.firebind.cbr.sleep.SleepStrategy;
+
+/**
+ * Compares the wake-up error of the sleep strategies. Each strategy sleeps
+ * to a series of absolute deadlines and we record how late it woke up, and
+ * how much CPU it burned doing so.
+ *
+ * @author agent
+ *
+ */
+public class SleepBench {
+
+  /**
+   * sleep durations to try in nanoseconds
+   */
+  protected long[] durations = { 10000L, 100000L, 1000000L, 10000000L };
+
+  /**
+   * total time to spend per strategy and duration
+   */
+  protected long budgetNanos = 1000000000L;
+
+  /**
+   * fewest sleeps per strategy and duration, however long they take
+   */
+  protected int minimumIterations = 10;
+
+  /**
+   * Run every strategy over every duration and print the results
+   *
+   * @param out where to print
+   * @throws InterruptedException when interrupted while sleeping
+   */
+  public void run(PrintStream out) throws InterruptedException {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    for (String type : Transmit.SLEEP_STRATEGY_TYPES) {
+      SleepStrategy strategy = Transmit.createSleepStrategy(type);
+      if (!strategy.getClass().getSimpleName().equals(type)) {
+        out.println(type + " is not available here, measuring "
+            + strategy.getClass().getSimpleName() + " in its place");
+      }
+      for (long duration : durations) {
+        Histogram lateness = new Histogram();
+
+        /*
+         * Run until the budget is used up rather than for budget / duration
+         * sleeps, the lateness adds to every sleep and would make short
+         * durations run far over budget.
+         */
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        long wallNanos = 0;
+        for (long i = 0; i < minimumIterations || wallNanos < budgetNanos;
+             i++) {
+          long deadline = System.nanoTime() + duration;
+          strategy.sleepUntil(deadline);
+          long woke = System.nanoTime();
+          lateness.record(woke - deadline);
+          wallNanos = woke - wallStart;
+        }
+        long cpuNanos = threads.getCurrentThreadCpuTime() - cpuStart;
+
+        out.println(String.format("%-27s %10s ns: late p50 %10s p99 %10s "
+            + "max %11s ns, cpu %5s%%", type,
+            Utils.commaIntegerFormat(duration),
+            Utils.commaIntegerFormat(lateness.getValueAtPercentile(50)),
+            Utils.commaIntegerFormat(lateness.getValueAtPercentile(99)),
+            Utils.commaIntegerFormat(lateness.getMaximum()),
+            Utils.tenths(cpuNanos * 100d / wallNanos)));
+      }
+    }
+  }
+
+}
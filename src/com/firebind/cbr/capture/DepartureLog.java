@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.capture;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+import com.firebind.cbr.transmit.DepartureListener;
+import com.firebind.cbr.transmit.Parameters;
+
+/**
+ * Logs the departure time and size of every datagram into a compact binary
+ * file. Each departure is a single long written straight into a
+ * memory-mapped window of the file, so logging costs a few nanoseconds.
+ *
+ * <p>File layout, all values big endian:</p>
+ * <pre>
+ *   long  magic "CBRDLOG1"
+ *   long  base nanoTime, departure times are relative to this
+ *   long  nanoseconds since epoch at the base nanoTime
+ *   long  configured rate in bits per second
+ *   long  configured payload size in bytes
+ *   long  number of records
+ *   long  datagrams per cycle, 0 when not known
+ *   long  reserved
+ *   long  record[number of records]
+ * </pre>
+ * A record holds the payload size in its top 16 bits and the departure time
+ * relative to the base in its low 48 bits, which covers 78 hours.
+ *
+ * @author agent
+ *
+ */
+public class DepartureLog implements DepartureListener, Closeable {
+
+  /**
+   * "CBRDLOG1"
+   */
+  public static final long MAGIC = 0x434252444c4f4731L;
+
+  /**
+   * size of the file header in bytes
+   */
+  public static final int HEADER_SIZE = 64;
+
+  /**
+   * number of bits holding the relative departure time
+   */
+  public static final int TIME_BITS = 48;
+
+  /**
+   * mask for the relative departure time of a record
+   */
+  public static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+  /**
+   * how much of the file is mapped at once
+   */
+  static final long WINDOW_SIZE_BYTES = 64L << 20;
+
+  private final RandomAccessFile file;
+  private final FileChannel fileChannel;
+
+  /**
+   * departure times are stored relative to this
+   */
+  private final long baseNanos;
+
+  /**
+   * currently mapped part of the file and its offset in the file
+   */
+  private MappedByteBuffer window;
+  private long windowOffset;
+
+  /**
+   * number of records written
+   */
+  private long recordCount;
+
+  /**
+   * datagrams the transmitter sent per cycle, 0 when not known
+   */
+  private long datagramsPerCycle;
+
+  /**
+   * @param file log file to create
+   * @param parameters parameters of the run being logged
+   * @throws IOException when the file cannot be created
+   */
+  public DepartureLog(File file, Parameters parameters) throws IOException {
+    this.file = new RandomAccessFile(file, "rw");
+    this.file.setLength(0);
+    this.fileChannel = this.file.getChannel();
+    this.baseNanos = System.nanoTime();
+    long epochNanos = TimeUnit.MILLISECONDS.toNanos(
+        System.currentTimeMillis());
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putLong(MAGIC);
+    header.putLong(baseNanos);
+    header.putLong(epochNanos);
+    header.putLong(parameters.getRateBitsPerSecond());
+    header.putLong(parameters.getDatagramPayloadSizeBytes());
+    header.flip();
+    fileChannel.write(header, 0);
+
+    windowOffset = HEADER_SIZE;
+    window = fileChannel.map(FileChannel.MapMode.READ_WRITE, windowOffset,
+                             WINDOW_SIZE_BYTES);
+  }
+
+  /* (non-Javadoc)
+   * @see com.firebind.cbr.transmit.DepartureListener#departed(long, java.nio.ByteBuffer, java.net.InetSocketAddress, java.net.InetSocketAddress)
+   */
+  @Override
+  public void departed(long nanoTime, ByteBuffer datagram,
+                       InetSocketAddress source,
+                       InetSocketAddress target) throws IOException {
+    long relative = nanoTime - baseNanos;
+    if ((relative & ~TIME_MASK) != 0) {
+      throw new IOException("departure " + relative
+          + "ns after start does not fit in the log");
+    }
+    if (!window.hasRemaining()) {
+      windowOffset += WINDOW_SIZE_BYTES;
+      window = fileChannel.map(FileChannel.MapMode.READ_WRITE, windowOffset,
+                               WINDOW_SIZE_BYTES);
+    }
+    window.putLong(((long) datagram.remaining()) << TIME_BITS | relative);
+    recordCount++;
+  }
+
+  /**
+   * @param datagramsPerCycle datagrams the transmitter sent per cycle,
+   * written to the header on close so the analysis can find cycle starts
+   */
+  public void setDatagramsPerCycle(long datagramsPerCycle) {
+    this.datagramsPerCycle = datagramsPerCycle;
+  }
+
+  /**
+   * Record the number of departures and datagrams per cycle in the header
+   * and trim the file
+   *
+   * @throws IOException when the file cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      window.force();
+      fileChannel.truncate(HEADER_SIZE + recordCount * 8);
+      ByteBuffer count = ByteBuffer.allocate(16);
+      count.putLong(recordCount);
+      count.putLong(datagramsPerCycle);
+      count.flip();
+      fileChannel.write(count, 40);
+    } finally {
+      file.close();
+    }
+  }
+
+  /**
+   * @return number of departures logged so far
+   */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+}
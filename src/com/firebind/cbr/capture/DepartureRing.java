@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.capture;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single producer, single consumer byte ring holding departure records. Each
+ * record is a fixed header followed by the captured payload bytes:
+ * <pre>
+ *   long  nanoTime
+ *   int   endpoint index
+ *   int   original payload length
+ *   int   captured payload length
+ *   byte  payload[captured payload length]
+ * </pre>
+ * Records wrap around the end of the ring. The producer never allocates and
+ * only copies, the consumer reads records back in place.
+ *
+ * @author agent
+ *
+ */
+class DepartureRing {
+
+  /**
+   * size of the fixed part of a record in bytes
+   */
+  static final int HEADER_SIZE = 20;
+
+  /**
+   * ring storage, length is a power of two
+   */
+  private final byte[] ring;
+
+  /**
+   * mask to turn a position into an index into the ring
+   */
+  private final int mask;
+
+  /**
+   * position of the next byte to be read, only advanced by the consumer
+   */
+  private final AtomicLong head = new AtomicLong();
+
+  /**
+   * position of the next byte to be written, only advanced by the producer
+   */
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * producer's cached copy of head, avoids a volatile read per record
+   */
+  private long cachedHead;
+
+  /**
+   * @param capacity minimum capacity in bytes, rounded up to a power of two
+   */
+  DepartureRing(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, 1 << 17));
+    if (size < capacity) {
+      size <<= 1;
+    }
+    ring = new byte[size];
+    mask = size - 1;
+  }
+
+  /**
+   * @return capacity of the ring in bytes
+   */
+  int capacity() {
+    return ring.length;
+  }
+
+  /**
+   * Try to append a record, called by the producer only.
+   *
+   * @param nanoTime departure time
+   * @param endpoint endpoint index
+   * @param payload payload between position and limit, left untouched
+   * @param capturedLength number of leading payload bytes to keep
+   * @return false when there is currently not enough room
+   */
+  boolean offer(long nanoTime, int endpoint, ByteBuffer payload,
+                int capturedLength) {
+    long position = tail.get();
+    long required = HEADER_SIZE + capturedLength;
+    if (position + required - cachedHead > ring.length) {
+      cachedHead = head.get();
+      if (position + required - cachedHead > ring.length) {
+        return false;
+      }
+    }
+    putLong(position, nanoTime);
+    putInt(position + 8, endpoint);
+    putInt(position + 12, payload.remaining());
+    putInt(position + 16, capturedLength);
+    copyIn(position + HEADER_SIZE, payload, capturedLength);
+    tail.lazySet(position + required);
+    return true;
+  }
+
+  /**
+   * @return position of the next record, for the consumer
+   */
+  long head() {
+    return head.get();
+  }
+
+  /**
+   * @return position after the last published record, for the consumer
+   */
+  long tail() {
+    return tail.get();
+  }
+
+  /**
+   * Release everything before a position back to the producer.
+   *
+   * @param position new head position
+   */
+  void release(long position) {
+    head.lazySet(position);
+  }
+
+  /**
+   * @param position ring position
+   * @return byte at position
+   */
+  byte get(long position) {
+    return ring[(int) position & mask];
+  }
+
+  /**
+   * @param position ring position
+   * @return big endian int starting at position
+   */
+  int getInt(long position) {
+    return (get(position) & 0xff) << 24
+        | (get(position + 1) & 0xff) << 16
+        | (get(position + 2) & 0xff) << 8
+        | (get(position + 3) & 0xff);
+  }
+
+  /**
+   * @param position ring position
+   * @return big endian long starting at position
+   */
+  long getLong(long position) {
+    return ((long) getInt(position)) << 32
+        | (getInt(position + 4) & 0xffffffffL);
+  }
+
+  /**
+   * Copy bytes out of the ring into a buffer.
+   *
+   * @param position ring position of the first byte
+   * @param length number of bytes to copy
+   * @param destination buffer to put the bytes into
+   */
+  void copyOut(long position, int length, ByteBuffer destination) {
+    int index = (int) position & mask;
+    int first = Math.min(length, ring.length - index);
+    destination.put(ring, index, first);
+    destination.put(ring, 0, length - first);
+  }
+
+  private void putInt(long position, int value) {
+    ring[(int) position & mask] = (byte) (value >>> 24);
+    ring[(int) (position + 1) & mask] = (byte) (value >>> 16);
+    ring[(int) (position + 2) & mask] = (byte) (value >>> 8);
+    ring[(int) (position + 3) & mask] = (byte) value;
+  }
+
+  private void putLong(long position, long value) {
+    putInt(position, (int) (value >>> 32));
+    putInt(position + 4, (int) value);
+  }
+
+  private void copyIn(long position, ByteBuffer payload, int length) {
+    int index = (int) position & mask;
+    int first = Math.min(length, ring.length - index);
+    if (payload.hasArray()) {
+      int offset = payload.arrayOffset() + payload.position();
+      System.arraycopy(payload.array(), offset, ring, index, first);
+      System.arraycopy(payload.array(), offset + first, ring, 0,
+                       length - first);
+    } else {
+      ByteBuffer source = payload.duplicate();
+      source.get(ring, index, first);
+      source.get(ring, 0, length - first);
+    }
+  }
+
+}
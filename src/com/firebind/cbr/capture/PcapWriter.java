@@ -0,0 +1,465 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.capture;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.firebind.cbr.transmit.DepartureListener;
+
+/**
+ * Records every departure into pcap files that open directly in Wireshark or
+ * tcpdump. Ethernet, IP and UDP headers are synthesized around the payload
+ * and timestamps have nanosecond resolution.
+ *
+ * <p>The transmit thread only copies the departure into an in-memory ring.
+ * A background thread drains the ring into a preallocated, memory-mapped
+ * file. When a file fills up it is trimmed to its used length and a new one
+ * is started, so a long capture rolls over into <code>name-0001.pcap</code>,
+ * <code>name-0002.pcap</code> and so on, each one a complete capture.</p>
+ *
+ * <p>A writer supports a single transmitting thread. If the ring is full the
+ * transmit thread waits for room rather than dropping, so the capture is
+ * exactly what was sent.</p>
+ *
+ * @see <a href="https://wiki.wireshark.org/Development/LibpcapFileFormat">
+ * libpcap file format</a>
+ * @author agent
+ *
+ */
+public class PcapWriter implements DepartureListener, Closeable {
+
+  /**
+   * pcap magic number for nanosecond resolution timestamps
+   */
+  static final int MAGIC_NANOSECOND = 0xa1b23c4d;
+
+  /**
+   * pcap link type for Ethernet
+   */
+  static final int LINKTYPE_ETHERNET = 1;
+
+  static final int ETHERNET_HEADER_SIZE = 14;
+  static final int IPV4_HEADER_SIZE = 20;
+  static final int IPV6_HEADER_SIZE = 40;
+  static final int UDP_HEADER_SIZE = 8;
+  static final int PCAP_HEADER_SIZE = 24;
+  static final int PCAP_RECORD_HEADER_SIZE = 16;
+
+  /**
+   * synthesized MAC addresses, locally administered
+   */
+  static final byte[] SOURCE_MAC = { 0x02, 0, 0, 0, 0, 0x01 };
+  static final byte[] TARGET_MAC = { 0x02, 0, 0, 0, 0, 0x02 };
+
+  /**
+   * default size of each capture file
+   */
+  public static final long DEFAULT_SEGMENT_SIZE_BYTES = 256L << 20;
+
+  /**
+   * default size of the in-memory ring
+   */
+  public static final int DEFAULT_RING_SIZE_BYTES = 8 << 20;
+
+  /**
+   * how long the writer thread waits when there is nothing to write
+   */
+  static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  /**
+   * first capture file, later ones are numbered from its name
+   */
+  private final File file;
+
+  /**
+   * maximum number of payload bytes to keep per datagram
+   */
+  private final int snapLength;
+
+  /**
+   * preallocated size of every capture file
+   */
+  private final long segmentSizeBytes;
+
+  /**
+   * hand-off between the transmit thread and the writer thread
+   */
+  private final DepartureRing ring;
+
+  /**
+   * source and target address pairs, records refer to these by index
+   */
+  private final List<InetSocketAddress[]> endpoints =
+      new CopyOnWriteArrayList<InetSocketAddress[]>();
+
+  /**
+   * offset turning {@link System#nanoTime()} into nanoseconds since epoch
+   */
+  private final long epochOffsetNanos;
+
+  /**
+   * background thread draining the ring into the capture files
+   */
+  private final Thread writerThread;
+
+  /**
+   * producer side cache of the last endpoint used
+   */
+  private InetSocketAddress lastSource;
+  private InetSocketAddress lastTarget;
+  private int lastEndpoint = -1;
+
+  /**
+   * set once no more departures will be offered
+   */
+  private volatile boolean closed;
+
+  /**
+   * first error seen by the writer thread
+   */
+  private volatile IOException failure;
+
+  /**
+   * writer thread state, current capture file and its mapping
+   */
+  private int segmentNumber;
+  private FileChannel segmentChannel;
+  private MappedByteBuffer segment;
+  private int ipIdentification;
+  private long datagramCount;
+
+  /**
+   * Create a writer with default snap length, file and ring sizes
+   *
+   * @param file capture file to create
+   * @throws IOException when the capture file cannot be created
+   */
+  public PcapWriter(File file) throws IOException {
+    this(file, 65535, DEFAULT_SEGMENT_SIZE_BYTES, DEFAULT_RING_SIZE_BYTES);
+  }
+
+  /**
+   * @param file capture file to create
+   * @param snapLength maximum number of payload bytes to keep per datagram
+   * @param segmentSizeBytes preallocated size of each capture file
+   * @param ringSizeBytes size of the in-memory ring
+   * @throws IOException when the capture file cannot be created
+   */
+  public PcapWriter(File file, int snapLength, long segmentSizeBytes,
+                    int ringSizeBytes) throws IOException {
+    if (segmentSizeBytes < PCAP_HEADER_SIZE + PCAP_RECORD_HEADER_SIZE
+        + ETHERNET_HEADER_SIZE + IPV6_HEADER_SIZE + UDP_HEADER_SIZE
+        + snapLength || segmentSizeBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("segment size " + segmentSizeBytes
+          + " cannot hold a datagram of " + snapLength + " bytes");
+    }
+    this.file = file;
+    this.snapLength = snapLength;
+    this.segmentSizeBytes = segmentSizeBytes;
+    this.ring = new DepartureRing(ringSizeBytes);
+    this.epochOffsetNanos = TimeUnit.MILLISECONDS.toNanos(
+        System.currentTimeMillis()) - System.nanoTime();
+    openSegment();
+
+    writerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        drain();
+      }
+    }, "pcap-writer-" + file.getName());
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  /* (non-Javadoc)
+   * @see com.firebind.cbr.transmit.DepartureListener#departed(long, java.nio.ByteBuffer, java.net.InetSocketAddress, java.net.InetSocketAddress)
+   */
+  @Override
+  public void departed(long nanoTime, ByteBuffer datagram,
+                       InetSocketAddress source,
+                       InetSocketAddress target) throws IOException {
+    int endpoint = endpointIndex(source, target);
+    int capturedLength = Math.min(datagram.remaining(), snapLength);
+    while (!ring.offer(nanoTime, endpoint, datagram, capturedLength)) {
+      if (null != failure) {
+        throw failure;
+      }
+      Thread.yield(); // writer thread is behind, wait for room
+    }
+  }
+
+  /**
+   * Write out everything recorded so far, trim the last file and stop the
+   * writer thread.
+   *
+   * @throws IOException when the capture could not be written
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    LockSupport.unpark(writerThread);
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+    if (null != failure) {
+      throw failure;
+    }
+  }
+
+  /**
+   * @return number of datagrams written, valid after close
+   */
+  public long getDatagramCount() {
+    return datagramCount;
+  }
+
+  /**
+   * Look up, or register, the index of a source and target pair. Transmitters
+   * pass the same address objects every time, so this is an identity check.
+   */
+  private int endpointIndex(InetSocketAddress source,
+                            InetSocketAddress target) {
+    if (source != lastSource || target != lastTarget) {
+      lastEndpoint = -1;
+      for (int i = 0; i < endpoints.size(); i++) {
+        InetSocketAddress[] pair = endpoints.get(i);
+        if (pair[0].equals(source) && pair[1].equals(target)) {
+          lastEndpoint = i;
+          break;
+        }
+      }
+      if (lastEndpoint < 0) {
+        endpoints.add(new InetSocketAddress[] { source, target });
+        lastEndpoint = endpoints.size() - 1;
+      }
+      lastSource = source;
+      lastTarget = target;
+    }
+    return lastEndpoint;
+  }
+
+  /**
+   * Writer thread loop, runs until closed and the ring is empty
+   */
+  private void drain() {
+    try {
+      while (true) {
+        boolean finished = closed; // read before the ring, see below
+        long head = ring.head();
+        long tail = ring.tail();
+        if (head == tail) {
+          if (finished) {
+            break; // closed was set before we saw the ring empty
+          }
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+          continue;
+        }
+        while (head < tail) {
+          head = writeRecord(head);
+        }
+        ring.release(head);
+      }
+      closeSegment();
+    } catch (IOException e) {
+      failure = e;
+    } catch (RuntimeException e) {
+      failure = new IOException(e);
+    }
+  }
+
+  /**
+   * Write one ring record as a pcap record
+   *
+   * @param position ring position of the record
+   * @return ring position of the following record
+   */
+  private long writeRecord(long position) throws IOException {
+    long nanoTime = ring.getLong(position);
+    InetSocketAddress[] pair = endpoints.get(ring.getInt(position + 8));
+    int originalLength = ring.getInt(position + 12);
+    int capturedLength = ring.getInt(position + 16);
+    long payload = position + DepartureRing.HEADER_SIZE;
+
+    boolean ipv4 = pair[1].getAddress() instanceof Inet4Address;
+    int headersSize = ETHERNET_HEADER_SIZE + UDP_HEADER_SIZE
+        + (ipv4 ? IPV4_HEADER_SIZE : IPV6_HEADER_SIZE);
+    if (segment.remaining() < PCAP_RECORD_HEADER_SIZE + headersSize
+        + capturedLength) {
+      closeSegment();
+      segmentNumber++;
+      openSegment();
+    }
+
+    long epochNanos = nanoTime + epochOffsetNanos;
+    segment.putInt((int) (epochNanos / 1000000000L));
+    segment.putInt((int) (epochNanos % 1000000000L));
+    segment.putInt(headersSize + capturedLength);
+    segment.putInt(headersSize + originalLength);
+
+    segment.put(TARGET_MAC).put(SOURCE_MAC);
+    segment.putShort((short) (ipv4 ? 0x0800 : 0x86dd));
+
+    byte[] source = addressBytes(pair[0], ipv4);
+    byte[] target = addressBytes(pair[1], ipv4);
+    int udpLength = UDP_HEADER_SIZE + originalLength;
+    if (ipv4) {
+      int ipStart = segment.position();
+      segment.put((byte) 0x45).put((byte) 0);
+      segment.putShort((short) (IPV4_HEADER_SIZE + udpLength));
+      segment.putShort((short) ipIdentification++);
+      segment.putShort((short) 0); // flags and fragment offset
+      segment.put((byte) 64).put((byte) 17); // ttl, protocol udp
+      segment.putShort((short) 0);
+      segment.put(source).put(target);
+      segment.putShort(ipStart + 10, (short) ipv4Checksum(ipStart));
+    } else {
+      segment.putInt(6 << 28);
+      segment.putShort((short) udpLength);
+      segment.put((byte) 17).put((byte) 64); // next header udp, hop limit
+      segment.put(source).put(target);
+    }
+
+    segment.putShort((short) pair[0].getPort());
+    segment.putShort((short) pair[1].getPort());
+    segment.putShort((short) udpLength);
+    int checksum = 0; // optional for IPv4
+    if (!ipv4 && capturedLength == originalLength) {
+      checksum = udpChecksum(source, target, pair[0].getPort(),
+                             pair[1].getPort(), udpLength, payload,
+                             originalLength);
+    }
+    segment.putShort((short) checksum);
+
+    ring.copyOut(payload, capturedLength, segment);
+    datagramCount++;
+    return payload + capturedLength;
+  }
+
+  /**
+   * @return address bytes of the requested family, zeroes when the family of
+   * the address does not match
+   */
+  private static byte[] addressBytes(InetSocketAddress address,
+                                     boolean ipv4) {
+    byte[] bytes = null == address.getAddress() ?
+        null : address.getAddress().getAddress();
+    int length = ipv4 ? 4 : 16;
+    return null != bytes && bytes.length == length ? bytes : new byte[length];
+  }
+
+  /**
+   * Ones' complement checksum of the IPv4 header just written
+   */
+  private int ipv4Checksum(int start) {
+    int sum = 0;
+    for (int i = 0; i < IPV4_HEADER_SIZE; i += 2) {
+      sum += segment.getShort(start + i) & 0xffff;
+    }
+    return foldChecksum(sum);
+  }
+
+  /**
+   * UDP checksum over the IPv6 pseudo header, UDP header and payload
+   */
+  private int udpChecksum(byte[] source, byte[] target, int sourcePort,
+                          int targetPort, int udpLength, long payload,
+                          int payloadLength) {
+    long sum = 0;
+    for (int i = 0; i < source.length; i += 2) {
+      sum += ((source[i] & 0xff) << 8) | (source[i + 1] & 0xff);
+      sum += ((target[i] & 0xff) << 8) | (target[i + 1] & 0xff);
+    }
+    sum += udpLength + 17;
+    sum += sourcePort + targetPort + udpLength;
+    for (int i = 0; i < payloadLength; i++) {
+      sum += (ring.get(payload + i) & 0xff) << ((i & 1) == 0 ? 8 : 0);
+    }
+    int checksum = foldChecksum(sum);
+    return checksum == 0 ? 0xffff : checksum;
+  }
+
+  private static int foldChecksum(long sum) {
+    while ((sum >>> 16) != 0) {
+      sum = (sum & 0xffff) + (sum >>> 16);
+    }
+    return (int) (~sum & 0xffff);
+  }
+
+  /**
+   * Preallocate and map the current capture file and write its header
+   */
+  private void openSegment() throws IOException {
+    File segmentFile = file;
+    if (segmentNumber > 0) {
+      String name = file.getName();
+      int dot = name.lastIndexOf('.');
+      String base = dot > 0 ? name.substring(0, dot) : name;
+      String extension = dot > 0 ? name.substring(dot) : "";
+      segmentFile = new File(file.getAbsoluteFile().getParentFile(),
+          String.format("%s-%04d%s", base, segmentNumber, extension));
+    }
+    RandomAccessFile raf = new RandomAccessFile(segmentFile, "rw");
+    try {
+      raf.setLength(segmentSizeBytes);
+      segmentChannel = raf.getChannel();
+      segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                   segmentSizeBytes);
+    } catch (IOException e) {
+      raf.close();
+      throw e;
+    }
+
+    segment.putInt(MAGIC_NANOSECOND);
+    segment.putShort((short) 2).putShort((short) 4); // version 2.4
+    segment.putInt(0); // timezone, always UTC
+    segment.putInt(0); // timestamp accuracy
+    segment.putInt(snapLength + ETHERNET_HEADER_SIZE + IPV6_HEADER_SIZE
+                   + UDP_HEADER_SIZE);
+    segment.putInt(LINKTYPE_ETHERNET);
+  }
+
+  /**
+   * Flush the current capture file and trim it to the bytes written
+   */
+  private void closeSegment() throws IOException {
+    try {
+      segment.force();
+      segmentChannel.truncate(segment.position());
+    } finally {
+      segmentChannel.close();
+    }
+  }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.coordinate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.firebind.cbr.scenario.FlowRun;
+import com.firebind.cbr.scenario.FlowSpec;
+import com.firebind.cbr.scenario.Scenario;
+import com.firebind.cbr.scenario.ScenarioRunner;
+import com.firebind.cbr.transmit.AbstractTransmitter;
+import com.firebind.cbr.transmit.DepartureListener;
+import com.firebind.cbr.transmit.Result;
+
+/**
+ * Runs its share of a scenario on behalf of a {@link Coordinator}. The agent
+ * listens for one coordinator at a time and follows the
+ * {@link Coordinator control protocol}: it answers clock probes, takes the
+ * scenario and its share of the flows, starts at the instant it is given,
+ * reports totals every interval while running and the outcome of every flow
+ * at the end.
+ *
+ * @author agent
+ *
+ */
+public class Agent {
+
+  /**
+   * how long a coordinator may stay silent before the session is dropped,
+   * the wait for START included
+   */
+  static final int IDLE_TIMEOUT_MILLIS = 60000;
+
+  /**
+   * address and port to listen for coordinators on
+   */
+  protected final InetSocketAddress listenAddress;
+
+  private ServerSocket server;
+
+  /**
+   * @param listenAddress address and port to listen for coordinators on
+   */
+  public Agent(InetSocketAddress listenAddress) {
+    super();
+    this.listenAddress = listenAddress;
+  }
+
+  /**
+   * Listen for coordinators, without accepting any yet
+   *
+   * @throws IOException when the port cannot be bound
+   */
+  public void bind() throws IOException {
+    server = new ServerSocket();
+    server.setReuseAddress(true);
+    server.bind(listenAddress);
+  }
+
+  /**
+   * @return address and port coordinators should connect to
+   */
+  public InetSocketAddress getLocalAddress() {
+    return (InetSocketAddress) server.getLocalSocketAddress();
+  }
+
+  /**
+   * Serve coordinators one after the other, forever. A failed session is
+   * reported and the agent carries on with the next coordinator.
+   *
+   * @throws IOException when the listen socket fails
+   */
+  public void serve() throws IOException {
+    if (null == server) {
+      bind();
+    }
+    while (true) {
+      try (Socket socket = server.accept()) {
+        System.out.println("coordinator " + socket.getRemoteSocketAddress()
+                           + " connected");
+        session(socket);
+        System.out.println("coordinator " + socket.getRemoteSocketAddress()
+                           + " done");
+      } catch (IOException | RuntimeException e) {
+        System.out.println("session failed: " + e);
+      }
+    }
+  }
+
+  /**
+   * Follow one coordinator from the first probe to DONE
+   *
+   * @param socket connection to the coordinator
+   * @throws IOException when the connection fails
+   */
+  protected void session(Socket socket) throws IOException {
+    socket.setTcpNoDelay(true);
+    socket.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+    BufferedReader in = new BufferedReader(new InputStreamReader(
+        socket.getInputStream(), StandardCharsets.UTF_8));
+    PrintWriter out = new PrintWriter(new OutputStreamWriter(
+        socket.getOutputStream(), StandardCharsets.UTF_8));
+
+    Scenario scenario = null;
+    ScenarioRunner runner = null;
+    final LongAdder packetCount = new LongAdder();
+    final LongAdder byteCount = new LongAdder();
+    final DepartureListener counter = new DepartureListener() {
+      @Override
+      public void departed(long nanoTime, ByteBuffer datagram,
+                           InetSocketAddress source,
+                           InetSocketAddress target) {
+        packetCount.increment();
+        byteCount.add(datagram.remaining());
+      }
+    };
+    long intervalNanos = Coordinator.DEFAULT_INTERVAL_NANOS;
+
+    String line;
+    try {
+      while (null != (line = in.readLine())) {
+        String[] fields = line.split(" ");
+        switch (fields[0]) {
+        case "TIME":
+          send(out, "TIME " + System.nanoTime());
+          break;
+        case "SCENARIO":
+          StringBuilder text = new StringBuilder();
+          for (int i = Integer.parseInt(fields[1]); i > 0; i--) {
+            String scenarioLine = in.readLine();
+            if (null == scenarioLine) {
+              throw new IOException("scenario cut short");
+            }
+            text.append(scenarioLine).append('\n');
+          }
+          scenario = Scenario.fromReader(new StringReader(text.toString()));
+          break;
+        case "INTERVAL":
+          intervalNanos = Long.parseLong(fields[1]) * 1000000L;
+          break;
+        case "SHARE":
+          if (null == scenario) {
+            throw new IllegalStateException("SHARE before SCENARIO");
+          }
+          runner = new ScenarioRunner() {
+            @Override
+            protected AbstractTransmitter createTransmitter(FlowSpec spec) {
+              AbstractTransmitter transmitter =
+                  super.createTransmitter(spec);
+              transmitter.setDepartureListener(counter);
+              return transmitter;
+            }
+          };
+          runner.setShare(Integer.parseInt(fields[1]),
+                          Integer.parseInt(fields[2]));
+          send(out, "READY " + runner.getShareFlowCount(scenario));
+          break;
+        case "START":
+          if (null == runner) {
+            throw new IllegalStateException("START before SHARE");
+          }
+          run(scenario, runner, Long.parseLong(fields[1]), intervalNanos,
+              packetCount, byteCount, out);
+          return;
+        default:
+          throw new IllegalStateException("unknown command " + fields[0]);
+        }
+      }
+    } catch (RuntimeException e) {
+      send(out, "ERROR " + e.getMessage());
+      throw e;
+    }
+  }
+
+  /**
+   * Run our share, reporting as we go
+   */
+  private void run(Scenario scenario, ScenarioRunner runner,
+                   final long startNanos, final long intervalNanos,
+                   final LongAdder packetCount, final LongAdder byteCount,
+                   final PrintWriter out) throws IOException {
+    // every agent reports the same intervals, however long its own flows run
+    final long intervalCount =
+        (scenario.getEndNanos() + intervalNanos - 1) / intervalNanos;
+    Thread reporter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        for (long interval = 1; interval <= intervalCount; interval++) {
+          long due = startNanos + interval * intervalNanos;
+          long remaining;
+          while ((remaining = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+          }
+          send(out, "STATS " + interval + " " + packetCount.sum() + " "
+               + byteCount.sum());
+        }
+      }
+    }, "agent-reporter");
+    reporter.setDaemon(true);
+    reporter.start();
+
+    List<FlowRun> runs;
+    try {
+      runs = runner.run(scenario, startNanos);
+      reporter.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+
+    for (FlowRun run : runs) {
+      Result result = run.getResult();
+      String flow = run.getSpec().getLineNumber() + " " + run.getInstance();
+      if (null == result) {
+        Exception failure = run.getFailure();
+        send(out, "FAILED " + flow + " "
+             + (null == failure ? "no result" : failure.toString()));
+      } else {
+        send(out, "FLOW " + flow + " " + result.getPacketCount() + " "
+             + result.getByteCount() + " "
+             + (result.getStartNanos() - startNanos) + " "
+             + (result.getStopNanos() - startNanos) + " "
+             + result.getDatagramsPerCycle());
+      }
+    }
+    send(out, "DONE");
+  }
+
+  /**
+   * Send one line, the reporter thread shares the writer
+   */
+  static void send(PrintWriter out, String message) {
+    synchronized (out) {
+      out.print(message);
+      out.print('\n');
+      out.flush();
+    }
+  }
+
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.coordinate;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.firebind.cbr.Utils;
+import com.firebind.cbr.scenario.FlowSpec;
+import com.firebind.cbr.scenario.Scenario;
+import com.firebind.cbr.scenario.ScenarioReport;
+import com.firebind.cbr.transmit.Parameters;
+import com.firebind.cbr.transmit.Result;
+
+/**
+ * Splits a scenario over several {@link Agent}s, starts them all at the same
+ * instant and combines what they report into one {@link ScenarioReport}.
+ *
+ * <p>The control protocol is line based text over one TCP connection per
+ * agent, coordinator to agent:</p>
+ * <pre>
+ *   TIME                      clock probe, repeated
+ *   SCENARIO &lt;lines&gt;          followed by the scenario file, verbatim
+ *   INTERVAL &lt;millis&gt;         how often to report while running
+ *   SHARE &lt;index&gt; &lt;count&gt;     which flows to run, see setShare of
+ *                             ScenarioRunner
+ *   START &lt;nanoTime&gt;          when to start, on the agent's clock
+ * </pre>
+ * and agent to coordinator:
+ * <pre>
+ *   TIME &lt;nanoTime&gt;           answer to a probe
+ *   READY &lt;flows&gt;             answer to SHARE
+ *   ERROR &lt;message&gt;           the agent gave up on the session
+ *   STATS &lt;interval&gt; &lt;packets&gt; &lt;bytes&gt;
+ *                             totals so far, every interval
+ *   FLOW &lt;line&gt; &lt;instance&gt; &lt;packets&gt; &lt;bytes&gt; &lt;start&gt; &lt;stop&gt;
+ *        &lt;datagramsPerCycle&gt;
+ *   FAILED &lt;line&gt; &lt;instance&gt; &lt;message&gt;
+ *                             outcome of each flow, times relative to START
+ *   DONE
+ * </pre>
+ *
+ * <p>An agent that stays silent for longer than the lead time plus an
+ * interval and a grace period, or drops the connection, is given up on. Its
+ * flows that did not report count as failed, and its last totals carry
+ * over into the intervals that follow.</p>
+ *
+ * <p>Each agent binds its own part of a line's source port range, see
+ * getShareSourcePorts of ScenarioRunner. A range with fewer ports than there
+ * are agents is bound whole by every agent, and is refused when agents
+ * share a host.</p>
+ *
+ * <p>The agents' clocks are not assumed to agree with ours. Each agent's
+ * offset is estimated from the probe with the shortest round trip, so the
+ * start instant is off by at most half that round trip.</p>
+ *
+ * @author agent
+ *
+ */
+public class Coordinator {
+
+  /**
+   * default reporting interval in nanoseconds
+   */
+  static final long DEFAULT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * number of clock probes per agent
+   */
+  static final int CLOCK_PROBES = 16;
+
+  static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+  /**
+   * how much longer than expected an agent may take to report, while
+   * running, before it is given up on
+   */
+  static final long GRACE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  /**
+   * agents to spread the scenario over
+   */
+  protected final List<InetSocketAddress> agentAddresses;
+
+  /**
+   * how often agents report while running
+   */
+  protected long intervalNanos = DEFAULT_INTERVAL_NANOS;
+
+  /**
+   * time allowed between the START message and the start instant
+   */
+  protected long leadNanos = TimeUnit.SECONDS.toNanos(2);
+
+  /*
+   * State of a run
+   */
+  private ScenarioReport report;
+  private Scenario scenario;
+  private Map<Integer, FlowSpec> specs;
+  private PrintStream out;
+  private long[][] intervalTotals;
+  private int[] intervalReports;
+  private int nextInterval;
+  private int liveAgents;
+  private long lastPacketCount;
+  private long lastByteCount;
+
+  /**
+   * @param agentAddresses agents to spread the scenario over
+   */
+  public Coordinator(List<InetSocketAddress> agentAddresses) {
+    super();
+    this.agentAddresses = new ArrayList<InetSocketAddress>(agentAddresses);
+  }
+
+  /**
+   * Run a scenario over all agents to completion
+   *
+   * @param scenarioFile scenario to run
+   * @param out where to print progress
+   * @return outcome of every flow, over all agents
+   * @throws IOException when the scenario cannot be read or an agent cannot
+   *           be set up
+   * @throws InterruptedException when interrupted waiting for the agents
+   */
+  public ScenarioReport run(File scenarioFile, PrintStream out)
+      throws IOException, InterruptedException {
+    List<String> lines =
+        Files.readAllLines(scenarioFile.toPath(), StandardCharsets.UTF_8);
+    StringBuilder text = new StringBuilder();
+    for (String line : lines) {
+      text.append(line).append('\n');
+    }
+    scenario = Scenario.fromReader(new StringReader(text.toString()));
+
+    this.out = out;
+    report = new ScenarioReport();
+    specs = new HashMap<Integer, FlowSpec>();
+    for (FlowSpec spec : scenario.getFlows()) {
+      specs.put(spec.getLineNumber(), spec);
+    }
+    checkSourcePorts();
+    int intervalCount =
+        (int) ((scenario.getEndNanos() + intervalNanos - 1) / intervalNanos);
+    intervalTotals = new long[intervalCount + 1][2];
+    intervalReports = new int[intervalCount + 1];
+    nextInterval = 1;
+    lastPacketCount = 0;
+    lastByteCount = 0;
+
+    List<AgentLink> links = new ArrayList<AgentLink>();
+    try {
+      for (int i = 0; i < agentAddresses.size(); i++) {
+        AgentLink link = new AgentLink(agentAddresses.get(i), i);
+        links.add(link);
+        link.synchronizeClock();
+        link.send("SCENARIO " + lines.size());
+        for (String line : lines) {
+          link.send(line);
+        }
+        link.send("INTERVAL " + TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+        link.send("SHARE " + i + " " + agentAddresses.size());
+        String[] ready = link.receive();
+        if (!"READY".equals(ready[0])) {
+          throw new IOException(link.address + ": " + String.join(" ", ready));
+        }
+        out.println("agent " + link.address + ": " + ready[1]
+            + " flows, clock offset "
+            + Utils.commaIntegerFormat(link.clockOffsetNanos) + " ns +/- "
+            + Utils.commaIntegerFormat(link.roundTripNanos / 2) + " ns");
+      }
+
+      liveAgents = links.size();
+      long startNanos = System.nanoTime() + leadNanos;
+      // the first report is due one interval after the start
+      int silenceMillis = (int) TimeUnit.NANOSECONDS.toMillis(
+          leadNanos + intervalNanos + GRACE_NANOS);
+      for (AgentLink link : links) {
+        link.socket.setSoTimeout(silenceMillis);
+        link.send("START " + (startNanos + link.clockOffsetNanos));
+      }
+      out.println("starting " + scenario.getFlowCount() + " flows on "
+          + links.size() + " agents in "
+          + TimeUnit.NANOSECONDS.toMillis(leadNanos) + "ms");
+
+      List<Thread> readers = new ArrayList<Thread>();
+      for (final AgentLink link : links) {
+        Thread reader = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            follow(link);
+          }
+        }, "coordinator-" + link.address);
+        reader.setDaemon(true);
+        readers.add(reader);
+        reader.start();
+      }
+      for (Thread reader : readers) {
+        reader.join();
+      }
+    } finally {
+      for (AgentLink link : links) {
+        link.close();
+      }
+    }
+    return report;
+  }
+
+  /**
+   * Take in everything an agent reports until it is done
+   */
+  private void follow(AgentLink link) {
+    try {
+      String[] fields;
+      while (!"DONE".equals((fields = link.receive())[0])) {
+        switch (fields[0]) {
+        case "STATS":
+          reported(link, Integer.parseInt(fields[1]),
+                   Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+          break;
+        case "FLOW":
+        case "FAILED":
+          flowed(link, fields);
+          break;
+        default:
+          throw new IOException(String.join(" ", fields));
+        }
+      }
+      missing(link);
+    } catch (IOException | RuntimeException e) {
+      synchronized (this) {
+        out.println("agent " + link.address + " failed: " + e);
+        missing(link);
+        // its reports no longer count, its last totals carry on
+        for (int interval = 1; interval < intervalReports.length;
+             interval++) {
+          if (interval <= link.lastInterval) {
+            intervalReports[interval]--;
+          } else {
+            intervalTotals[interval][0] += link.packetCount;
+            intervalTotals[interval][1] += link.byteCount;
+          }
+        }
+        liveAgents--;
+        printIntervals();
+      }
+    }
+  }
+
+  private synchronized void reported(AgentLink link, int interval,
+                                     long packetCount, long byteCount) {
+    if (interval > link.lastInterval && interval < intervalReports.length) {
+      intervalTotals[interval][0] += packetCount;
+      intervalTotals[interval][1] += byteCount;
+      intervalReports[interval]++;
+      link.lastInterval = interval;
+      link.packetCount = packetCount;
+      link.byteCount = byteCount;
+      printIntervals();
+    }
+  }
+
+  /**
+   * Count every flow of the agent's share it did not report on as failed
+   */
+  private synchronized void missing(AgentLink link) {
+    int flow = 0;
+    for (FlowSpec spec : scenario.getFlows()) {
+      for (int instance = 0; instance < spec.getCount(); instance++) {
+        if (flow++ % agentAddresses.size() == link.shareIndex
+            && !link.flows.contains(spec.getLineNumber() + " " + instance)) {
+          out.println("agent " + link.address + " line "
+              + spec.getLineNumber() + " flow " + instance
+              + " failed: not reported");
+          link.flows.add(spec.getLineNumber() + " " + instance);
+          report.add(spec, spec.parametersFor(instance), null);
+        }
+      }
+    }
+  }
+
+  /**
+   * Refuse source port ranges that agents on the same host would all bind
+   *
+   * @throws IOException when a range cannot be split over the agents and
+   *           some of them share a host
+   */
+  private void checkSourcePorts() throws IOException {
+    Set<Object> hosts = new HashSet<Object>();
+    for (InetSocketAddress address : agentAddresses) {
+      // every loopback address is this host
+      hosts.add(address.isUnresolved() ? address.getHostString() :
+          address.getAddress().isLoopbackAddress() ? "loopback" :
+              address.getAddress());
+    }
+    if (hosts.size() == agentAddresses.size()) {
+      return;
+    }
+    for (FlowSpec spec : scenario.getFlows()) {
+      if (spec.getFirstSourcePort() > 0 && spec.getLastSourcePort()
+          - spec.getFirstSourcePort() + 1 < agentAddresses.size()) {
+        throw new IOException("line " + spec.getLineNumber()
+            + ": source ports " + spec.getFirstSourcePort() + "-"
+            + spec.getLastSourcePort() + " cannot be split over "
+            + agentAddresses.size() + " agents, and agents on the same host "
+            + "would bind the same ports");
+      }
+    }
+  }
+
+  /**
+   * Print every interval all live agents have reported on, in order
+   */
+  private void printIntervals() {
+    while (nextInterval < intervalReports.length
+           && intervalReports[nextInterval] >= liveAgents
+           && liveAgents > 0) {
+      long packetCount = intervalTotals[nextInterval][0];
+      long byteCount = intervalTotals[nextInterval][1];
+      out.println(Utils.tenths(nextInterval * intervalNanos / 1e9) + "s: "
+          + Utils.commaIntegerFormat((packetCount - lastPacketCount)
+                                     * 1e9 / intervalNanos) + " pps, "
+          + Utils.commaIntegerFormat(Utils.calculateRate(
+              byteCount - lastByteCount, intervalNanos)) + " bps");
+      lastPacketCount = packetCount;
+      lastByteCount = byteCount;
+      nextInterval++;
+    }
+  }
+
+  private synchronized void flowed(AgentLink link, String[] fields) {
+    FlowSpec spec = specs.get(Integer.parseInt(fields[1]));
+    int instance = Integer.parseInt(fields[2]);
+    link.flows.add(spec.getLineNumber() + " " + instance);
+    Parameters parameters = spec.parametersFor(instance);
+    if ("FAILED".equals(fields[0])) {
+      out.println("agent " + link.address + " line " + fields[1] + " flow "
+                  + instance + " failed:"
+                  + rest(fields, 3));
+      report.add(spec, parameters, null);
+    } else {
+      report.add(spec, parameters, new Result(parameters,
+          Long.parseLong(fields[3]), Long.parseLong(fields[4]),
+          Long.parseLong(fields[5]), Long.parseLong(fields[6]),
+          Integer.parseInt(fields[7])));
+    }
+  }
+
+  private static String rest(String[] fields, int from) {
+    StringBuilder line = new StringBuilder();
+    for (int i = from; i < fields.length; i++) {
+      line.append(' ').append(fields[i]);
+    }
+    return line.toString();
+  }
+
+  /**
+   * @param intervalMillis how often agents report while running
+   */
+  public void setIntervalMillis(long intervalMillis) {
+    this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+  }
+
+  /**
+   * @param leadMillis time allowed between sending START and the start
+   * instant, must cover the agents setting up their flows
+   */
+  public void setLeadMillis(long leadMillis) {
+    this.leadNanos = TimeUnit.MILLISECONDS.toNanos(leadMillis);
+  }
+
+  /**
+   * Connection to one agent
+   */
+  static class AgentLink {
+
+    final InetSocketAddress address;
+    final Socket socket;
+    final BufferedReader in;
+    final PrintWriter out;
+
+    /**
+     * which share of the flows the agent runs
+     */
+    final int shareIndex;
+
+    /**
+     * flows reported on so far, as "line instance"
+     */
+    final Set<String> flows = new HashSet<String>();
+
+    /**
+     * last interval reported and the totals it carried
+     */
+    int lastInterval;
+    long packetCount;
+    long byteCount;
+
+    /**
+     * agent clock minus ours, and the round trip of the probe it came from
+     */
+    long clockOffsetNanos;
+    long roundTripNanos = Long.MAX_VALUE;
+
+    AgentLink(InetSocketAddress address, int shareIndex) throws IOException {
+      this.address = address;
+      this.shareIndex = shareIndex;
+      socket = new Socket();
+      try {
+        socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(Agent.IDLE_TIMEOUT_MILLIS);
+        in = new BufferedReader(new InputStreamReader(
+            socket.getInputStream(), StandardCharsets.UTF_8));
+        out = new PrintWriter(new OutputStreamWriter(
+            socket.getOutputStream(), StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        socket.close();
+        throw new IOException(address + ": " + e.getMessage(), e);
+      }
+    }
+
+    /**
+     * Probe the agent's clock and keep the offset from the quickest probe
+     */
+    void synchronizeClock() throws IOException {
+      for (int probe = 0; probe < CLOCK_PROBES; probe++) {
+        long sent = System.nanoTime();
+        send("TIME");
+        String[] answer = receive();
+        long received = System.nanoTime();
+        if (!"TIME".equals(answer[0])) {
+          throw new IOException(address + ": " + String.join(" ", answer));
+        }
+        if (received - sent < roundTripNanos) {
+          roundTripNanos = received - sent;
+          clockOffsetNanos =
+              Long.parseLong(answer[1]) - (sent + roundTripNanos / 2);
+        }
+      }
+    }
+
+    void send(String message) {
+      out.print(message);
+      out.print('\n');
+      out.flush();
+    }
+
+    String[] receive() throws IOException {
+      String line = in.readLine();
+      if (null == line) {
+        throw new IOException(address + " closed the connection");
+      }
+      return line.split(" ");
+    }
+
+    void close() throws IOException {
+      socket.close();
+    }
+  }
+
+}
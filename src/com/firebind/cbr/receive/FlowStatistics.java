@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.receive;
+
+import java.net.InetSocketAddress;
+
+import com.firebind.cbr.Utils;
+
+/**
+ * Data object for what was received from a single source address and port
+ *
+ * @author agent
+ *
+ */
+public class FlowStatistics {
+
+  /**
+   * IP address and port the flow was sent from
+   */
+  protected final InetSocketAddress source;
+
+  /**
+   * number of datagrams received
+   */
+  protected long packetCount;
+
+  /**
+   * number of payload bytes received
+   */
+  protected long byteCount;
+
+  /**
+   * arrival time of the first datagram, from {@link System#nanoTime()}
+   */
+  protected long firstNanos;
+
+  /**
+   * arrival time of the last datagram, from {@link System#nanoTime()}
+   */
+  protected long lastNanos;
+
+  /**
+   * arrival time of the first datagram of the last burst, normally the last
+   * cycle, and the bytes received before it
+   */
+  protected long lastBurstStartNanos;
+  protected long bytesBeforeLastBurst;
+
+  /**
+   * @param source IP address and port the flow was sent from
+   * @param packetCount number of datagrams received
+   * @param byteCount number of payload bytes received
+   * @param firstNanos arrival time of the first datagram
+   * @param lastNanos arrival time of the last datagram
+   * @param lastBurstStartNanos arrival time of the first datagram of the
+   * last burst
+   * @param bytesBeforeLastBurst payload bytes received before the last burst
+   */
+  public FlowStatistics(InetSocketAddress source,
+                        long packetCount,
+                        long byteCount,
+                        long firstNanos,
+                        long lastNanos,
+                        long lastBurstStartNanos,
+                        long bytesBeforeLastBurst) {
+    super();
+    this.source = source;
+    this.packetCount = packetCount;
+    this.byteCount = byteCount;
+    this.firstNanos = firstNanos;
+    this.lastNanos = lastNanos;
+    this.lastBurstStartNanos = lastBurstStartNanos;
+    this.bytesBeforeLastBurst = bytesBeforeLastBurst;
+  }
+
+  /**
+   * Fold the statistics of the same flow seen by another receive thread into
+   * this one.
+   *
+   * @param other statistics for the same source
+   */
+  public void merge(FlowStatistics other) {
+    FlowStatistics last =
+        other.lastBurstStartNanos > lastBurstStartNanos ? other : this;
+    long lastBurstBytes = last.byteCount - last.bytesBeforeLastBurst;
+    lastBurstStartNanos = last.lastBurstStartNanos;
+    bytesBeforeLastBurst = byteCount + other.byteCount - lastBurstBytes;
+    packetCount += other.packetCount;
+    byteCount += other.byteCount;
+    firstNanos = Math.min(firstNanos, other.firstNanos);
+    lastNanos = Math.max(lastNanos, other.lastNanos);
+  }
+
+  /**
+   * @return IP address and port the flow was sent from
+   */
+  public InetSocketAddress getSource() {
+    return source;
+  }
+
+  /**
+   * @return number of datagrams received
+   */
+  public long getPacketCount() {
+    return packetCount;
+  }
+
+  /**
+   * @return number of payload bytes received
+   */
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * @return arrival time of the first datagram
+   */
+  public long getFirstNanos() {
+    return firstNanos;
+  }
+
+  /**
+   * @return arrival time of the last datagram
+   */
+  public long getLastNanos() {
+    return lastNanos;
+  }
+
+  /**
+   * @return arrival time of the first datagram of the last burst
+   */
+  public long getLastBurstStartNanos() {
+    return lastBurstStartNanos;
+  }
+
+  /**
+   * @return payload bytes received before the last burst
+   */
+  public long getBytesBeforeLastBurst() {
+    return bytesBeforeLastBurst;
+  }
+
+  /**
+   * Transmitters send each cycle's bytes at the start of its period, so the
+   * first to last arrival spans N cycles of bytes but only N - 1 periods.
+   * The last burst is left out, the same as the departure log analysis.
+   *
+   * @return receive rate in bits per second, zero for a single burst
+   */
+  public double getRate() {
+    return lastBurstStartNanos > firstNanos ?
+        Utils.calculateRate(bytesBeforeLastBurst,
+                            lastBurstStartNanos - firstNanos) : 0;
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return source + " " + Utils.commaIntegerFormat(packetCount)
+        + " packets, " + Utils.commaIntegerFormat(byteCount) + " bytes, "
+        + Utils.commaIntegerFormat(getRate()) + " bps";
+  }
+
+}
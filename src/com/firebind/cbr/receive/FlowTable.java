@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.receive;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-flow counters kept in an open-addressing hash table of primitive
+ * arrays, keyed by source address and port. Owned by a single receive
+ * thread, so there is no locking.
+ *
+ * <p>The JDK hands back the same sender address object for consecutive
+ * datagrams from the same source, so the common case is an identity check
+ * against the last sender and recording a datagram allocates nothing.</p>
+ *
+ * @author agent
+ *
+ */
+class FlowTable {
+
+  /**
+   * port value marking an unused slot
+   */
+  private static final int EMPTY = -1;
+
+  /*
+   * Key columns, an address is split into two longs. IPv4 addresses only use
+   * the low long.
+   */
+  private long[] addressHigh;
+  private long[] addressLow;
+  private int[] ports;
+  private boolean[] ipv6;
+
+  /*
+   * Value columns
+   */
+  private long[] packetCounts;
+  private long[] byteCounts;
+  private long[] firstNanos;
+  private long[] lastNanos;
+  private long[] lastBurstStartNanos;
+  private long[] bytesBeforeLastBurst;
+
+  /**
+   * arrivals of a flow closer together than this belong to the same burst
+   */
+  private final long burstGapNanos;
+
+  /**
+   * number of used slots
+   */
+  private int size;
+
+  /**
+   * last sender seen and its slot
+   */
+  private SocketAddress lastSender;
+  private int lastSlot;
+
+  /**
+   * @param initialCapacity number of flows expected, the table grows as
+   * needed
+   * @param burstGapNanos arrivals of a flow closer together than this belong
+   * to the same burst
+   */
+  FlowTable(int initialCapacity, long burstGapNanos) {
+    this.burstGapNanos = burstGapNanos;
+    allocate(Integer.highestOneBit(Math.max(initialCapacity, 8) * 2 - 1) * 2);
+  }
+
+  /**
+   * Count one datagram
+   *
+   * @param sender address returned from the receive call
+   * @param byteCount payload size of the datagram
+   * @param nanoTime arrival time
+   */
+  void record(SocketAddress sender, int byteCount, long nanoTime) {
+    int slot = lastSlot;
+    if (sender != lastSender) {
+      slot = slotFor((InetSocketAddress) sender);
+      lastSender = sender;
+      lastSlot = slot;
+    }
+    if (packetCounts[slot]++ == 0) {
+      firstNanos[slot] = nanoTime;
+      lastBurstStartNanos[slot] = nanoTime;
+    } else if (nanoTime - lastNanos[slot] >= burstGapNanos) {
+      lastBurstStartNanos[slot] = nanoTime;
+      bytesBeforeLastBurst[slot] = byteCounts[slot];
+    }
+    byteCounts[slot] += byteCount;
+    lastNanos[slot] = nanoTime;
+  }
+
+  /**
+   * @return a snapshot of every flow in the table
+   */
+  List<FlowStatistics> flows() {
+    List<FlowStatistics> flows = new ArrayList<FlowStatistics>(size);
+    for (int slot = 0; slot < ports.length; slot++) {
+      if (ports[slot] != EMPTY) {
+        flows.add(new FlowStatistics(
+            new InetSocketAddress(address(slot), ports[slot]),
+            packetCounts[slot], byteCounts[slot],
+            firstNanos[slot], lastNanos[slot],
+            lastBurstStartNanos[slot], bytesBeforeLastBurst[slot]));
+      }
+    }
+    return flows;
+  }
+
+  /**
+   * Find the slot for a sender, adding it when new
+   */
+  private int slotFor(InetSocketAddress sender) {
+    byte[] bytes = sender.getAddress().getAddress();
+    long high = 0;
+    long low = 0;
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes.length - i > 8) {
+        high = high << 8 | (bytes[i] & 0xff);
+      } else {
+        low = low << 8 | (bytes[i] & 0xff);
+      }
+    }
+    boolean six = bytes.length == 16;
+    int port = sender.getPort();
+
+    int mask = ports.length - 1;
+    int slot = hash(high, low, port) & mask;
+    while (ports[slot] != EMPTY) {
+      if (ports[slot] == port && addressLow[slot] == low
+          && addressHigh[slot] == high && ipv6[slot] == six) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    if ((size + 1) * 2 > ports.length) {
+      grow();
+      return slotFor(sender);
+    }
+    addressHigh[slot] = high;
+    addressLow[slot] = low;
+    ports[slot] = port;
+    ipv6[slot] = six;
+    size++;
+    return slot;
+  }
+
+  private static int hash(long high, long low, int port) {
+    long h = (high * 31 + low) * 0x9e3779b97f4a7c15L + port;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private InetAddress address(int slot) {
+    byte[] bytes = new byte[ipv6[slot] ? 16 : 4];
+    for (int i = bytes.length - 1, shift = 0; i >= 0; i--, shift += 8) {
+      long column = shift < 64 ? addressLow[slot] : addressHigh[slot];
+      bytes[i] = (byte) (column >>> (shift & 63));
+    }
+    try {
+      return InetAddress.getByAddress(bytes);
+    } catch (UnknownHostException e) {
+      throw new IllegalStateException(e); // only thrown for illegal lengths
+    }
+  }
+
+  private void allocate(int capacity) {
+    addressHigh = new long[capacity];
+    addressLow = new long[capacity];
+    ports = new int[capacity];
+    ipv6 = new boolean[capacity];
+    packetCounts = new long[capacity];
+    byteCounts = new long[capacity];
+    firstNanos = new long[capacity];
+    lastNanos = new long[capacity];
+    lastBurstStartNanos = new long[capacity];
+    bytesBeforeLastBurst = new long[capacity];
+    Arrays.fill(ports, EMPTY);
+  }
+
+  /**
+   * Double the table and rehash, only happens when a new flow shows up
+   */
+  private void grow() {
+    long[] oldHigh = addressHigh;
+    long[] oldLow = addressLow;
+    int[] oldPorts = ports;
+    boolean[] oldIpv6 = ipv6;
+    long[] oldPackets = packetCounts;
+    long[] oldBytes = byteCounts;
+    long[] oldFirst = firstNanos;
+    long[] oldLast = lastNanos;
+    long[] oldBurstStart = lastBurstStartNanos;
+    long[] oldBytesBefore = bytesBeforeLastBurst;
+
+    allocate(oldPorts.length * 2);
+    int mask = ports.length - 1;
+    for (int old = 0; old < oldPorts.length; old++) {
+      if (oldPorts[old] == EMPTY) {
+        continue;
+      }
+      int slot = hash(oldHigh[old], oldLow[old], oldPorts[old]) & mask;
+      while (ports[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      addressHigh[slot] = oldHigh[old];
+      addressLow[slot] = oldLow[old];
+      ports[slot] = oldPorts[old];
+      ipv6[slot] = oldIpv6[old];
+      packetCounts[slot] = oldPackets[old];
+      byteCounts[slot] = oldBytes[old];
+      firstNanos[slot] = oldFirst[old];
+      lastNanos[slot] = oldLast[old];
+      lastBurstStartNanos[slot] = oldBurstStart[old];
+      bytesBeforeLastBurst[slot] = oldBytesBefore[old];
+    }
+    lastSender = null;
+  }
+
+}
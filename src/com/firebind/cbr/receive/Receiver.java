@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.receive;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.firebind.cbr.analyze.Histogram;
+import com.firebind.cbr.transmit.CycleSchedule;
+
+/**
+ * Multi-threaded UDP receiver measuring what arrives per source address and
+ * port. Each receive thread owns its socket, a direct receive buffer and a
+ * {@link FlowTable}, so the receive path neither locks nor allocates. The
+ * per-thread tables are merged once the threads have stopped.
+ *
+ * <p>Where the platform supports <code>SO_REUSEPORT</code> all threads share
+ * the listen port and the kernel spreads flows across them. Otherwise thread
+ * <i>n</i> listens on port + <i>n</i>, and senders should spread themselves
+ * across those ports.</p>
+ *
+ * @author agent
+ *
+ */
+public class Receiver {
+
+  /**
+   * large enough for any UDP payload
+   */
+  static final int MAXIMUM_DATAGRAM_SIZE = 65536;
+
+  /**
+   * address and port to listen on, port 0 picks an ephemeral port
+   */
+  protected final InetSocketAddress listenAddress;
+
+  /**
+   * number of receive threads and sockets
+   */
+  protected final int threadCount;
+
+  /**
+   * requested socket receive buffer size, 0 leaves the OS default
+   */
+  protected int receiveBufferSizeBytes = 4 << 20;
+
+  /**
+   * arrivals of a flow closer together than this belong to the same burst,
+   * see {@link FlowStatistics#getRate()}
+   */
+  protected long burstGapNanos = 100000;
+
+  /**
+   * schedule the flows are expected to follow, datagrams and bits per cycle
+   * and rate, 0 datagrams when schedule deviation is not recorded. Only
+   * makes sense with a single flow per thread.
+   */
+  protected int scheduleDatagramsPerCycle;
+  protected long scheduleBitsPerCycle;
+  protected long scheduleRateBitsPerSecond;
+
+  /**
+   * schedule deviation merged over all threads, filled in by stop()
+   */
+  protected Histogram scheduleDeviation;
+
+  /**
+   * one per receive thread
+   */
+  private final List<ReceiveLoop> loops = new ArrayList<ReceiveLoop>();
+  private final List<Thread> threads = new ArrayList<Thread>();
+
+  /**
+   * @param listenAddress address and port to listen on
+   * @param threadCount number of receive threads and sockets
+   */
+  public Receiver(InetSocketAddress listenAddress, int threadCount) {
+    super();
+    this.listenAddress = listenAddress;
+    this.threadCount = Math.max(threadCount, 1);
+  }
+
+  /**
+   * Open the sockets and start receiving
+   *
+   * @throws IOException when a socket cannot be opened
+   */
+  public void start() throws IOException {
+    SocketOption<Boolean> reusePort = reusePortOption();
+    InetSocketAddress bindAddress = listenAddress;
+    for (int i = 0; i < threadCount; i++) {
+      DatagramChannel channel = DatagramChannel.open();
+      try {
+        boolean shared = threadCount > 1 && null != reusePort
+            && channel.supportedOptions().contains(reusePort);
+        if (shared) {
+          channel.setOption(reusePort, true);
+        } else if (i > 0 && listenAddress.getPort() != 0) {
+          bindAddress = new InetSocketAddress(listenAddress.getAddress(),
+                                              listenAddress.getPort() + i);
+        }
+        if (receiveBufferSizeBytes > 0) {
+          channel.setOption(StandardSocketOptions.SO_RCVBUF,
+                            receiveBufferSizeBytes);
+        }
+        channel.configureBlocking(true);
+        channel.bind(bindAddress);
+        if (shared && i == 0) {
+          // the rest share whatever port the first one was given
+          bindAddress = (InetSocketAddress) channel.getLocalAddress();
+        }
+      } catch (IOException e) {
+        channel.close();
+        stop();
+        throw e;
+      }
+      ReceiveLoop loop = new ReceiveLoop(channel, burstGapNanos);
+      if (scheduleDatagramsPerCycle > 0) {
+        loop.datagramsPerCycle = scheduleDatagramsPerCycle;
+        loop.schedule = new CycleSchedule(scheduleBitsPerCycle,
+                                          scheduleRateBitsPerSecond);
+        loop.deviation = new Histogram();
+      }
+      Thread thread = new Thread(loop, "udp-receiver-" + i);
+      thread.setDaemon(true);
+      loops.add(loop);
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+  }
+
+  /**
+   * @return address and port of every receive socket
+   * @throws IOException when an address cannot be determined
+   */
+  public List<InetSocketAddress> getListenAddresses() throws IOException {
+    List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+    for (ReceiveLoop loop : loops) {
+      addresses.add((InetSocketAddress) loop.channel.getLocalAddress());
+    }
+    return addresses;
+  }
+
+  /**
+   * @return number of datagrams received so far over all threads
+   */
+  public long getPacketCount() {
+    long packetCount = 0;
+    for (ReceiveLoop loop : loops) {
+      packetCount += loop.packetCount.get();
+    }
+    return packetCount;
+  }
+
+  /**
+   * Block until at least one datagram has arrived and then nothing more has
+   * arrived for the idle period.
+   *
+   * @param idleMillis quiet period that ends a stream
+   * @throws InterruptedException when interrupted while waiting
+   */
+  public void awaitIdle(long idleMillis) throws InterruptedException {
+    long lastCount = 0;
+    long lastChange = System.currentTimeMillis();
+    while (true) {
+      Thread.sleep(Math.min(idleMillis, 100));
+      long count = getPacketCount();
+      long now = System.currentTimeMillis();
+      if (count != lastCount) {
+        lastCount = count;
+        lastChange = now;
+      } else if (count > 0 && now - lastChange >= idleMillis) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Stop all receive threads and merge their per-flow results
+   *
+   * @return statistics for every flow seen, merged over all threads
+   * @throws IOException when a socket cannot be closed
+   */
+  public List<FlowStatistics> stop() throws IOException {
+    for (ReceiveLoop loop : loops) {
+      loop.channel.close(); // wakes the blocked receive
+    }
+    for (Thread thread : threads) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+    }
+
+    // the joins above make every table safely visible to this thread
+    Map<InetSocketAddress, FlowStatistics> merged =
+        new LinkedHashMap<InetSocketAddress, FlowStatistics>();
+    scheduleDeviation =
+        scheduleDatagramsPerCycle > 0 ? new Histogram() : null;
+    for (ReceiveLoop loop : loops) {
+      if (null != loop.failure) {
+        throw loop.failure;
+      }
+      if (null != scheduleDeviation) {
+        scheduleDeviation.add(loop.deviation);
+      }
+      for (FlowStatistics flow : loop.table.flows()) {
+        FlowStatistics existing = merged.get(flow.getSource());
+        if (null == existing) {
+          merged.put(flow.getSource(), flow);
+        } else {
+          existing.merge(flow);
+        }
+      }
+    }
+    loops.clear();
+    threads.clear();
+    return Collections.unmodifiableList(
+        new ArrayList<FlowStatistics>(merged.values()));
+  }
+
+  /**
+   * @param receiveBufferSizeBytes socket receive buffer size to request,
+   * 0 to leave the OS default
+   */
+  public void setReceiveBufferSizeBytes(int receiveBufferSizeBytes) {
+    this.receiveBufferSizeBytes = receiveBufferSizeBytes;
+  }
+
+  /**
+   * @param burstGapNanos arrivals of a flow closer together than this belong
+   * to the same burst, the last burst is left out of the rate. Should be
+   * well below the cycle period and above the time between datagrams of a
+   * cycle.
+   */
+  public void setBurstGapNanos(long burstGapNanos) {
+    this.burstGapNanos = burstGapNanos;
+  }
+
+  /**
+   * Record how late each cycle's first datagram arrives against an exact
+   * schedule. The transmitters send a cycle's datagrams back to back, so
+   * gaps between single arrivals mostly measure the period; the start of
+   * each cycle is what the pacing controls. The schedule is anchored at the
+   * earliest arrival relative to it seen so far, so a slow first send does
+   * not offset every cycle after it. Assumes one flow per thread and no
+   * loss, a lost datagram shifts the cycles that follow.
+   *
+   * @param datagramsPerCycle datagrams the transmitter sends per cycle, 0
+   * to not record
+   * @param datagramPayloadSizeBytes datagram payload size in bytes
+   * @param rateBitsPerSecond rate the transmitter is configured for
+   */
+  public void setSchedule(int datagramsPerCycle, int datagramPayloadSizeBytes,
+                          long rateBitsPerSecond) {
+    this.scheduleDatagramsPerCycle = datagramsPerCycle;
+    this.scheduleBitsPerCycle =
+        8L * datagramPayloadSizeBytes * datagramsPerCycle;
+    this.scheduleRateBitsPerSecond = rateBitsPerSecond;
+  }
+
+  /**
+   * @return lateness of cycle starts against the schedule in nanoseconds
+   * over all threads, available after {@link #stop()} when a
+   * schedule was set, otherwise null
+   */
+  public Histogram getScheduleDeviation() {
+    return scheduleDeviation;
+  }
+
+  /**
+   * <code>SO_REUSEPORT</code> only exists from Java 9 on, look it up at
+   * runtime so we still build for Java 8.
+   *
+   * @return the socket option, or null when this JVM does not have it
+   */
+  @SuppressWarnings("unchecked")
+  static SocketOption<Boolean> reusePortOption() {
+    try {
+      return (SocketOption<Boolean>) StandardSocketOptions.class
+          .getField("SO_REUSEPORT").get(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Receive loop for a single socket
+   */
+  static class ReceiveLoop implements Runnable {
+
+    final DatagramChannel channel;
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(MAXIMUM_DATAGRAM_SIZE);
+    final FlowTable table;
+
+    /**
+     * published for progress reporting, the table holds the real counts
+     */
+    final AtomicLong packetCount = new AtomicLong();
+
+    /**
+     * expected schedule and deviation from it, null when not recorded
+     */
+    int datagramsPerCycle;
+    CycleSchedule schedule;
+    Histogram deviation;
+
+    volatile IOException failure;
+
+    ReceiveLoop(DatagramChannel channel, long burstGapNanos) {
+      this.channel = channel;
+      this.table = new FlowTable(64, burstGapNanos);
+    }
+
+    @Override
+    public void run() {
+      long packets = 0;
+      long earliestOffset = 0;
+      try {
+        while (true) {
+          buffer.clear();
+          SocketAddress sender = channel.receive(buffer);
+          long arrival = System.nanoTime();
+          table.record(sender, buffer.position(), arrival);
+          if (null != schedule && packets % datagramsPerCycle == 0) {
+            if (packets == 0) {
+              schedule.start(arrival);
+            } else {
+              long offset = arrival - schedule.next();
+              earliestOffset = Math.min(earliestOffset, offset);
+              deviation.record(offset - earliestOffset);
+            }
+          }
+          packetCount.lazySet(++packets);
+        }
+      } catch (ClosedChannelException e) {
+        // stop() closed the channel, we are done
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.scenario;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+import com.firebind.cbr.transmit.AbstractTransmitter;
+import com.firebind.cbr.transmit.Parameters;
+import com.firebind.cbr.transmit.Result;
+
+/**
+ * A single flow of a scenario: waits for its start time, then transmits on
+ * its own thread.
+ *
+ * @author agent
+ *
+ */
+public class FlowRun implements Runnable {
+
+  /**
+   * group this flow belongs to
+   */
+  protected final FlowSpec spec;
+
+  /**
+   * index of this flow within its group
+   */
+  protected final int instance;
+
+  /**
+   * transmit parameters for this flow
+   */
+  protected final Parameters parameters;
+
+  /**
+   * configured transmitter for this flow
+   */
+  protected final AbstractTransmitter transmitter;
+
+  /**
+   * when to start, from {@link System#nanoTime()}
+   */
+  protected long startNanos;
+
+  /**
+   * set when the transmit failed
+   */
+  protected volatile Exception failure;
+
+  /**
+   * @param spec group this flow belongs to
+   * @param instance index of this flow within its group
+   * @param transmitter configured transmitter for this flow
+   */
+  public FlowRun(FlowSpec spec, int instance,
+                 AbstractTransmitter transmitter) {
+    super();
+    this.spec = spec;
+    this.instance = instance;
+    this.parameters = spec.parametersFor(instance);
+    this.transmitter = transmitter;
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Runnable#run()
+   */
+  @Override
+  public void run() {
+    long remaining;
+    while ((remaining = startNanos - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(remaining);
+    }
+    try {
+      transmitter.transmit(parameters);
+    } catch (IOException | RuntimeException e) {
+      // an unresolved address or bad parameter is as much a failure
+      failure = e;
+    }
+  }
+
+  /**
+   * @return group this flow belongs to
+   */
+  public FlowSpec getSpec() {
+    return spec;
+  }
+
+  /**
+   * @return index of this flow within its group
+   */
+  public int getInstance() {
+    return instance;
+  }
+
+  /**
+   * @return transmit parameters for this flow
+   */
+  public Parameters getParameters() {
+    return parameters;
+  }
+
+  /**
+   * @return configured transmitter for this flow
+   */
+  public AbstractTransmitter getTransmitter() {
+    return transmitter;
+  }
+
+  /**
+   * @return outcome as measured by the transmitter, null if it failed
+   */
+  public Result getResult() {
+    return null == failure ? transmitter.getResult() : null;
+  }
+
+  /**
+   * @return why the transmit failed, or null
+   */
+  public Exception getFailure() {
+    return failure;
+  }
+
+}
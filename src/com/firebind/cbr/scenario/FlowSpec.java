@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.scenario;
+
+import java.net.InetSocketAddress;
+
+import com.firebind.cbr.Utils;
+import com.firebind.cbr.transmit.Parameters;
+
+/**
+ * Data object for one line of a scenario: a group of identical flows
+ *
+ * @author agent
+ *
+ */
+public class FlowSpec {
+
+  /**
+   * line of the scenario file this came from
+   */
+  protected final int lineNumber;
+
+  /**
+   * number of identical flows to run
+   */
+  protected final int count;
+
+  /**
+   * simple class name of the transmitter
+   */
+  protected final String transmitterType;
+
+  /**
+   * simple class name of the sleep strategy, null for the default
+   */
+  protected final String sleepStrategyType;
+
+  /**
+   * size of the datagram payload in bytes
+   */
+  protected final int datagramPayloadSizeBytes;
+
+  /**
+   * rate of each flow in bits per second
+   */
+  protected final long rateBitsPerSecond;
+
+  /**
+   * delay from the scenario start in nanoseconds
+   */
+  protected final long startOffsetNanos;
+
+  /**
+   * number of seconds each flow transmits
+   */
+  protected final int durationSeconds;
+
+  /**
+   * IP address to send to
+   */
+  protected final String targetAddress;
+
+  /**
+   * first and last target port, flow <i>i</i> of the group uses the
+   * <i>i</i>th port of the range, wrapping around
+   */
+  protected final int firstTargetPort;
+  protected final int lastTargetPort;
+
+  /**
+   * source port range the group's flows send from, 0 for the runner's
+   */
+  protected final int firstSourcePort;
+  protected final int lastSourcePort;
+
+  /**
+   * @param lineNumber line of the scenario file this came from
+   * @param count number of identical flows to run
+   * @param transmitterType simple class name of the transmitter
+   * @param sleepStrategyType simple class name of the sleep strategy, or null
+   * @param datagramPayloadSizeBytes size of the datagram payload in bytes
+   * @param rateBitsPerSecond rate of each flow in bits per second
+   * @param startOffsetNanos delay from the scenario start in nanoseconds
+   * @param durationSeconds number of seconds each flow transmits
+   * @param targetAddress IP address to send to
+   * @param firstTargetPort first target port
+   * @param lastTargetPort last target port
+   * @param firstSourcePort first source port, 0 for the runner's range
+   * @param lastSourcePort last source port
+   */
+  public FlowSpec(int lineNumber,
+                  int count,
+                  String transmitterType,
+                  String sleepStrategyType,
+                  int datagramPayloadSizeBytes,
+                  long rateBitsPerSecond,
+                  long startOffsetNanos,
+                  int durationSeconds,
+                  String targetAddress,
+                  int firstTargetPort,
+                  int lastTargetPort,
+                  int firstSourcePort,
+                  int lastSourcePort) {
+    super();
+    this.lineNumber = lineNumber;
+    this.count = count;
+    this.transmitterType = transmitterType;
+    this.sleepStrategyType = sleepStrategyType;
+    this.datagramPayloadSizeBytes = datagramPayloadSizeBytes;
+    this.rateBitsPerSecond = rateBitsPerSecond;
+    this.startOffsetNanos = startOffsetNanos;
+    this.durationSeconds = durationSeconds;
+    this.targetAddress = targetAddress;
+    this.firstTargetPort = firstTargetPort;
+    this.lastTargetPort = lastTargetPort;
+    this.firstSourcePort = firstSourcePort;
+    this.lastSourcePort = lastSourcePort;
+  }
+
+  /**
+   * @param instance index of the flow within this group
+   * @return transmit parameters for that flow
+   */
+  public Parameters parametersFor(int instance) {
+    int port = firstTargetPort
+        + instance % (lastTargetPort - firstTargetPort + 1);
+    return new Parameters(datagramPayloadSizeBytes, rateBitsPerSecond,
+                          durationSeconds,
+                          new InetSocketAddress(targetAddress, port));
+  }
+
+  /**
+   * Spread the flows of this group evenly over one period so they do not all
+   * send their bursts at the same instant.
+   *
+   * @param instance index of the flow within this group
+   * @return delay from the scenario start in nanoseconds
+   */
+  public long startNanosFor(int instance) {
+    double period = Utils.calculatePeriod(
+        Utils.calculateDatagramsPerCycle(datagramPayloadSizeBytes,
+                                         rateBitsPerSecond, 0.250),
+        datagramPayloadSizeBytes, rateBitsPerSecond);
+    return startOffsetNanos
+        + (long) (period * 1000000000d * instance / count);
+  }
+
+  /**
+   * @return line of the scenario file this came from
+   */
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * @return number of identical flows to run
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @return simple class name of the transmitter
+   */
+  public String getTransmitterType() {
+    return transmitterType;
+  }
+
+  /**
+   * @return simple class name of the sleep strategy, or null
+   */
+  public String getSleepStrategyType() {
+    return sleepStrategyType;
+  }
+
+  /**
+   * @return size of the datagram payload in bytes
+   */
+  public int getDatagramPayloadSizeBytes() {
+    return datagramPayloadSizeBytes;
+  }
+
+  /**
+   * @return rate of each flow in bits per second
+   */
+  public long getRateBitsPerSecond() {
+    return rateBitsPerSecond;
+  }
+
+  /**
+   * @return delay from the scenario start in nanoseconds
+   */
+  public long getStartOffsetNanos() {
+    return startOffsetNanos;
+  }
+
+  /**
+   * @return number of seconds each flow transmits
+   */
+  public int getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  /**
+   * @return first source port the group's flows send from, 0 for the
+   * runner's range
+   */
+  public int getFirstSourcePort() {
+    return firstSourcePort;
+  }
+
+  /**
+   * @return last source port the group's flows send from
+   */
+  public int getLastSourcePort() {
+    return lastSourcePort;
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return count + " x " + transmitterType + " "
+        + datagramPayloadSizeBytes + " bytes @ "
+        + Utils.commaIntegerFormat(rateBitsPerSecond) + " bps to "
+        + targetAddress + ":" + firstTargetPort
+        + (lastTargetPort != firstTargetPort ? "-" + lastTargetPort : "")
+        + (firstSourcePort > 0 ? " from port " + firstSourcePort
+           + (lastSourcePort != firstSourcePort ? "-" + lastSourcePort : "")
+           : "");
+  }
+
+}
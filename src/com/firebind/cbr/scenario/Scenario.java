@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.scenario;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.firebind.cbr.Transmit;
+
+/**
+ * A set of flows to run together. The text format has one group of
+ * identical flows per line, blank lines and lines starting with
+ * <code>#</code> are ignored:
+ * <pre>
+ *   # count transmitter payload rate startSeconds durationSeconds address port [sleepStrategy] [sourcePort]
+ *   200 SendSleepTransmitter 160 64000 0 60 10.0.0.2 16384-16583 ThreadSleepStrategy
+ *   4 SendSleepTransmitter 1200 8000000 0.5 60 10.0.0.2 5004 20000-20003
+ * </pre>
+ * The port is either a single port or a <code>first-last</code> range that
+ * the flows of the group are spread over. The optional source port, or
+ * <code>first-last</code> range, is where the group's pooled channels are
+ * bound, see {@link ScenarioRunner#setSourcePorts(int, int)}.
+ *
+ * @author agent
+ *
+ */
+public class Scenario {
+
+  /**
+   * groups of flows in the order they were listed
+   */
+  protected final List<FlowSpec> flows;
+
+  /**
+   * @param flows groups of flows
+   */
+  public Scenario(List<FlowSpec> flows) {
+    super();
+    this.flows = Collections.unmodifiableList(new ArrayList<FlowSpec>(flows));
+  }
+
+  /**
+   * @return groups of flows in the order they were listed
+   */
+  public List<FlowSpec> getFlows() {
+    return flows;
+  }
+
+  /**
+   * @return total number of flows over all groups
+   */
+  public int getFlowCount() {
+    int flowCount = 0;
+    for (FlowSpec flow : flows) {
+      flowCount += flow.getCount();
+    }
+    return flowCount;
+  }
+
+  /**
+   * @return nanoseconds from the scenario start until the last group is due
+   * to stop
+   */
+  public long getEndNanos() {
+    long endNanos = 0;
+    for (FlowSpec flow : flows) {
+      endNanos = Math.max(endNanos, flow.getStartOffsetNanos()
+          + flow.getDurationSeconds() * 1000000000L);
+    }
+    return endNanos;
+  }
+
+  /**
+   * @param file scenario file to read
+   * @return the parsed scenario
+   * @throws IOException when the file cannot be read
+   * @throws IllegalArgumentException when a line cannot be parsed
+   */
+  public static Scenario fromFile(File file) throws IOException {
+    try (Reader reader = new InputStreamReader(new FileInputStream(file),
+                                               StandardCharsets.UTF_8)) {
+      return fromReader(reader);
+    }
+  }
+
+  /**
+   * @param reader scenario text to read
+   * @return the parsed scenario
+   * @throws IOException when the text cannot be read
+   * @throws IllegalArgumentException when a line cannot be parsed
+   */
+  public static Scenario fromReader(Reader reader) throws IOException {
+    List<FlowSpec> flows = new ArrayList<FlowSpec>();
+    BufferedReader lines = new BufferedReader(reader);
+    int lineNumber = 0;
+    String line;
+    while (null != (line = lines.readLine())) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      try {
+        flows.add(parseLine(lineNumber, line.split("\\s+")));
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("line " + lineNumber + ": "
+            + e.getMessage() + " in \"" + line + "\"", e);
+      }
+    }
+    return new Scenario(flows);
+  }
+
+  private static FlowSpec parseLine(int lineNumber, String[] fields) {
+    if (fields.length < 8 || fields.length > 10) {
+      throw new IllegalArgumentException("expected 8 to 10 fields");
+    }
+    if (null == Transmit.createTransmitter(fields[1], null)) {
+      throw new IllegalArgumentException("unknown transmitter " + fields[1]);
+    }
+
+    // the optional fields are told apart by what they look like
+    String sleepStrategyType = null;
+    int[] sourcePorts = { 0, 0 };
+    for (int i = 8; i < fields.length; i++) {
+      if (fields[i].matches("\\d+(-\\d+)?")) {
+        sourcePorts = parsePorts(fields[i]);
+      } else if (null == Transmit.createSleepStrategy(fields[i])) {
+        throw new IllegalArgumentException(
+            "unknown sleep strategy " + fields[i]);
+      } else if (null == sleepStrategyType) {
+        sleepStrategyType = fields[i];
+      } else {
+        throw new IllegalArgumentException("second sleep strategy "
+                                           + fields[i]);
+      }
+    }
+    int[] targetPorts = parsePorts(fields[7]);
+
+    return new FlowSpec(lineNumber,
+                        Integer.parseInt(fields[0]),
+                        fields[1],
+                        sleepStrategyType,
+                        Integer.parseInt(fields[2]),
+                        Long.parseLong(fields[3]),
+                        (long) (Double.parseDouble(fields[4]) * 1000000000d),
+                        Integer.parseInt(fields[5]),
+                        fields[6],
+                        targetPorts[0],
+                        targetPorts[1],
+                        sourcePorts[0],
+                        sourcePorts[1]);
+  }
+
+  /**
+   * @param field a single port or a <code>first-last</code> range
+   * @return first and last port
+   */
+  private static int[] parsePorts(String field) {
+    String[] ports = field.split("-", 2);
+    int firstPort = Integer.parseInt(ports[0]);
+    int lastPort = ports.length > 1 ? Integer.parseInt(ports[1]) : firstPort;
+    if (lastPort < firstPort) {
+      throw new IllegalArgumentException("empty port range " + field);
+    }
+    return new int[] { firstPort, lastPort };
+  }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.scenario;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.firebind.cbr.Utils;
+import com.firebind.cbr.transmit.Parameters;
+import com.firebind.cbr.transmit.Result;
+
+/**
+ * Combined accuracy and throughput over all flows of a scenario, per group
+ * of flows and overall.
+ *
+ * @author agent
+ *
+ */
+public class ScenarioReport {
+
+  /**
+   * totals per group, and over all groups
+   */
+  protected final Map<FlowSpec, Totals> groups =
+      new LinkedHashMap<FlowSpec, Totals>();
+  protected final Totals overall = new Totals();
+
+  /**
+   * Start an empty report, see
+   * {@link #add(FlowSpec, Parameters, Result)}
+   */
+  public ScenarioReport() {
+    super();
+  }
+
+  /**
+   * @param runs completed flows of a scenario
+   */
+  public ScenarioReport(List<FlowRun> runs) {
+    for (FlowRun run : runs) {
+      add(run.getSpec(), run.getParameters(), run.getResult());
+    }
+  }
+
+  /**
+   * Add the outcome of one flow
+   *
+   * @param spec group the flow belongs to
+   * @param parameters transmit parameters of the flow
+   * @param result outcome of the flow, null when it failed
+   */
+  public void add(FlowSpec spec, Parameters parameters, Result result) {
+    Totals group = groups.get(spec);
+    if (null == group) {
+      group = new Totals();
+      groups.put(spec, group);
+    }
+    group.add(parameters, result);
+    overall.add(parameters, result);
+  }
+
+  /**
+   * @return totals over all flows
+   */
+  public Totals getOverall() {
+    return overall;
+  }
+
+  /**
+   * Print one line per group followed by the overall totals
+   *
+   * @param out where to print
+   */
+  public void print(PrintStream out) {
+    for (Map.Entry<FlowSpec, Totals> group : groups.entrySet()) {
+      out.println("line " + group.getKey().getLineNumber() + ": "
+                  + group.getKey() + "\n  " + group.getValue());
+    }
+    out.println("overall:\n  " + overall);
+  }
+
+  /**
+   * Accumulated figures over a set of flows
+   */
+  public static class Totals {
+
+    int flowCount;
+    int failureCount;
+    long packetCount;
+    long byteCount;
+    double configuredRate;
+    double achievedRate;
+    double minimumAccuracy = Double.MAX_VALUE;
+    double maximumAccuracy;
+    double accuracySum;
+    long firstStartNanos = Long.MAX_VALUE;
+    long lastStopNanos = Long.MIN_VALUE;
+
+    void add(Parameters parameters, Result result) {
+      flowCount++;
+      configuredRate += parameters.getRateBitsPerSecond();
+      if (null == result) {
+        failureCount++;
+        return;
+      }
+      packetCount += result.getPacketCount();
+      byteCount += result.getByteCount();
+      achievedRate += result.getRate();
+      double accuracy = result.getAccuracy();
+      minimumAccuracy = Math.min(minimumAccuracy, accuracy);
+      maximumAccuracy = Math.max(maximumAccuracy, accuracy);
+      accuracySum += accuracy;
+      firstStartNanos = Math.min(firstStartNanos, result.getStartNanos());
+      lastStopNanos = Math.max(lastStopNanos, result.getStopNanos());
+    }
+
+    /**
+     * @return sum of the configured rates in bits per second
+     */
+    public double getConfiguredRate() {
+      return configuredRate;
+    }
+
+    /**
+     * @return sum of the rates each flow achieved in bits per second
+     */
+    public double getAchievedRate() {
+      return achievedRate;
+    }
+
+    /**
+     * @return number of flows that failed to transmit
+     */
+    public int getFailureCount() {
+      return failureCount;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+      int succeeded = flowCount - failureCount;
+      if (succeeded == 0) {
+        return flowCount + " flows, all failed";
+      }
+      double seconds = (lastStopNanos - firstStartNanos) / 1000000000d;
+      return flowCount + " flows"
+          + (failureCount > 0 ? " (" + failureCount + " failed)" : "")
+          + ", aggregate " + Utils.commaIntegerFormat(achievedRate)
+          + " of " + Utils.commaIntegerFormat(configuredRate) + " bps ("
+          + Utils.tenths(Utils.calculateAccuracy(achievedRate,
+                                                 configuredRate))
+          + "%), accuracy min/avg/max "
+          + Utils.tenths(minimumAccuracy) + "/"
+          + Utils.tenths(accuracySum / succeeded) + "/"
+          + Utils.tenths(maximumAccuracy) + "%, "
+          + Utils.commaIntegerFormat(packetCount) + " packets, "
+          + Utils.commaIntegerFormat(packetCount / seconds) + " pps, "
+          + Utils.commaIntegerFormat(
+              Utils.calculateRate(byteCount, lastStopNanos - firstStartNanos))
+          + " bps throughput";
+    }
+  }
+
+}
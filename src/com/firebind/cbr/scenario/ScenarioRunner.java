@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.scenario;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.firebind.cbr.Transmit;
+import com.firebind.cbr.sleep.SleepStrategy;
+import com.firebind.cbr.sleep.ThreadSleepStrategy;
+import com.firebind.cbr.transmit.AbstractTransmitter;
+import com.firebind.cbr.transmit.ChannelPool;
+
+/**
+ * Runs every flow of a {@link Scenario} in this JVM, one thread per flow.
+ *
+ * <p>Flows of a group have their starts staggered over one period so they do
+ * not burst in lockstep. Flows lease their channels from a
+ * {@link ChannelPool} to keep socket count down, sized either directly or
+ * by how many flows should share a channel. Since one thread per
+ * flow is used, flows that sleep default to {@link ThreadSleepStrategy}
+ * rather than spinning.</p>
+ *
+ * @author agent
+ *
+ */
+public class ScenarioRunner {
+
+  /**
+   * how many flows send on the same channel, 1 gives every flow its own
+   */
+  protected int flowsPerChannel = 16;
+
+  /**
+   * channels per address family, 0 derives it from flowsPerChannel
+   */
+  protected int channelCount;
+
+  /**
+   * source port range for the channels, 0 for ephemeral ports
+   */
+  protected int firstSourcePort;
+  protected int lastSourcePort;
+
+  /**
+   * run only every shareCount-th flow, starting with flow shareIndex, so a
+   * scenario can be split over several hosts
+   */
+  protected int shareIndex;
+  protected int shareCount = 1;
+
+  /**
+   * pool of the last run
+   */
+  protected ChannelPool channelPool;
+
+  /**
+   * time allowed for all flow threads to get going before the first start
+   */
+  protected long leadNanos = TimeUnit.MILLISECONDS.toNanos(500);
+
+  /**
+   * Run all flows of a scenario to completion, starting shortly from now
+   *
+   * @param scenario flows to run
+   * @return every flow with its outcome
+   * @throws IOException when a channel cannot be opened
+   * @throws InterruptedException when interrupted waiting for flows to finish
+   */
+  public List<FlowRun> run(Scenario scenario)
+      throws IOException, InterruptedException {
+    return run(scenario, System.nanoTime() + leadNanos);
+  }
+
+  /**
+   * Run all flows of a scenario to completion
+   *
+   * @param scenario flows to run
+   * @param scenarioStart when the scenario starts, from
+   *          {@link System#nanoTime()}
+   * @return every flow with its outcome
+   * @throws IOException when a channel cannot be opened
+   * @throws InterruptedException when interrupted waiting for flows to finish
+   */
+  public List<FlowRun> run(Scenario scenario, long scenarioStart)
+      throws IOException, InterruptedException {
+    List<FlowRun> runs = new ArrayList<FlowRun>();
+    List<Thread> threads = new ArrayList<Thread>();
+    int flowCount = getShareFlowCount(scenario);
+    channelPool = new ChannelPool(channelCount > 0 ? channelCount :
+        (flowCount + flowsPerChannel - 1) / flowsPerChannel);
+    channelPool.setSourcePorts(firstSourcePort, lastSourcePort);
+    try {
+      int flow = 0;
+      for (FlowSpec spec : scenario.getFlows()) {
+        for (int instance = 0; instance < spec.getCount(); instance++) {
+          if (flow++ % shareCount != shareIndex) {
+            continue;
+          }
+          FlowRun run = new FlowRun(spec, instance, createTransmitter(spec));
+          run.transmitter.setPrintResult(false);
+          run.transmitter.setChannelPool(channelPool);
+          int[] sourcePorts = getShareSourcePorts(spec);
+          run.transmitter.setSourcePorts(sourcePorts[0], sourcePorts[1]);
+          runs.add(run);
+        }
+      }
+
+      for (FlowRun run : runs) {
+        run.startNanos = scenarioStart + run.spec.startNanosFor(run.instance);
+        Thread thread = new Thread(run, "flow-" + run.spec.getLineNumber()
+                                   + "-" + run.instance);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    } finally {
+      channelPool.close();
+    }
+    return runs;
+  }
+
+  /**
+   * @param scenario flows to run
+   * @return number of flows of the scenario in our share
+   */
+  public int getShareFlowCount(Scenario scenario) {
+    return Math.max(scenario.getFlowCount() - shareIndex + shareCount - 1, 0)
+        / shareCount;
+  }
+
+  /**
+   * Runners of different shares may run on the same host, so a line's
+   * source port range is split into one part per share when it has a port
+   * for every share. A smaller range is used whole by every share, which
+   * then have to run on different hosts.
+   *
+   * @param spec group of flows
+   * @return first and last source port for our share of the group's flows,
+   * 0 for the runner's range
+   */
+  public int[] getShareSourcePorts(FlowSpec spec) {
+    int first = spec.getFirstSourcePort();
+    int last = spec.getLastSourcePort();
+    long size = last - first + 1;
+    if (0 == first || size < shareCount) {
+      return new int[] { first, last };
+    }
+    return new int[] {
+      first + (int) (size * shareIndex / shareCount),
+      first + (int) (size * (shareIndex + 1) / shareCount) - 1
+    };
+  }
+
+  /**
+   * @param spec group of flows
+   * @return a new transmitter for one flow of the group
+   */
+  protected AbstractTransmitter createTransmitter(FlowSpec spec) {
+    SleepStrategy sleepStrategy = null == spec.getSleepStrategyType() ?
+        new ThreadSleepStrategy() :
+        Transmit.createSleepStrategy(spec.getSleepStrategyType());
+    return Transmit.createTransmitter(spec.getTransmitterType(),
+                                      sleepStrategy);
+  }
+
+  /**
+   * @return pool the flows of the last run leased their channels from,
+   * closed once the run is over
+   */
+  public ChannelPool getChannelPool() {
+    return channelPool;
+  }
+
+  /**
+   * @param flowsPerChannel how many flows send on the same channel, 1 gives
+   * every flow its own channel
+   */
+  public void setFlowsPerChannel(int flowsPerChannel) {
+    this.flowsPerChannel = Math.max(flowsPerChannel, 1);
+  }
+
+  /**
+   * @param channelCount channels per address family, overrides
+   * {@link #setFlowsPerChannel(int)}, 0 to derive it from flows per channel
+   */
+  public void setChannelCount(int channelCount) {
+    this.channelCount = channelCount;
+  }
+
+  /**
+   * Run only a share of the flows, every shareCount-th flow counting over
+   * all groups in order, so that shareCount runners with shareIndex 0 to
+   * shareCount - 1 together run the whole scenario.
+   *
+   * @param shareIndex which share to run, from 0
+   * @param shareCount number of shares
+   */
+  public void setShare(int shareIndex, int shareCount) {
+    this.shareIndex = shareIndex;
+    this.shareCount = Math.max(shareCount, 1);
+  }
+
+  /**
+   * @param firstSourcePort first source port for the channels, 0 for
+   * ephemeral ports
+   * @param lastSourcePort last source port for the channels
+   * @see ChannelPool#setSourcePorts(int, int)
+   */
+  public void setSourcePorts(int firstSourcePort, int lastSourcePort) {
+    this.firstSourcePort = firstSourcePort;
+    this.lastSourcePort = lastSourcePort;
+  }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.sleep;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sleep to an absolute deadline. The thread parks, letting the kernel do
+ * the waiting, until it is within a short spin window of the deadline and
+ * then spins the rest of the way. Early wake-ups simply park again against
+ * the same deadline, so nothing drifts the way repeated relative sleeps do.
+ * 
+ * <p>The spin window has to cover how late a park wakes up, the kernel's
+ * timer slack (50&micro;s by default on Linux) plus scheduling latency. That
+ * varies a lot between hosts, so the window starts at a minimum and follows
+ * the observed overshoot, decaying slowly back when wake-ups improve. This
+ * gives close to {@link SpinSleepStrategy} accuracy while only spinning for
+ * that window. Instances keep that state and are not thread safe, use one per
+ * transmitter.</p>
+ * 
+ * @author agent
+ * @see java.util.concurrent.locks.LockSupport#parkNanos(long)
+ *
+ */
+public class DeadlineSleepStrategy implements SleepStrategy {
+
+    /**
+     * default minimum spin window in nanoseconds
+     */
+    public static final long DEFAULT_SPIN_NANOS = 60000;
+
+    /**
+     * the spin window never grows past this, bounding the CPU spent
+     */
+    public static final long MAXIMUM_SPIN_NANOS = 2000000;
+
+    /**
+     * spin window never shrinks below this
+     */
+    private final long minimumSpinNanos;
+
+    /**
+     * how close to the deadline we stop parking and start spinning
+     */
+    private long spinNanos;
+
+    public DeadlineSleepStrategy() {
+        this(DEFAULT_SPIN_NANOS);
+    }
+
+    /**
+     * @param minimumSpinNanos how close to the deadline to start spinning
+     *          at least
+     */
+    public DeadlineSleepStrategy(long minimumSpinNanos) {
+        this.minimumSpinNanos = minimumSpinNanos;
+        this.spinNanos = minimumSpinNanos;
+    }
+
+    /* (non-Javadoc)
+     * @see com.firebind.sleep.SleepStrategy#sleep(long)
+     */
+    @Override
+    public void sleep(long nanoseconds) throws InterruptedException {
+        if (nanoseconds > 0) {
+            sleepUntil(System.nanoTime() + nanoseconds);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.firebind.sleep.SleepStrategy#sleepUntil(long)
+     */
+    @Override
+    public void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > spinNanos) {
+            long wake = deadlineNanos - spinNanos;
+            LockSupport.parkNanos(wake - System.nanoTime());
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            adapt(System.nanoTime() - wake);
+        }
+        while (deadlineNanos - System.nanoTime() > 0) {}
+    }
+
+    /**
+     * Widen the spin window to the overshoot at once, narrow it by 1/64th of
+     * the difference per wake-up
+     * 
+     * @param overshootNanos how late the park woke up
+     */
+    private void adapt(long overshootNanos) {
+        long target = Math.min(Math.max(overshootNanos + minimumSpinNanos / 4,
+                                        minimumSpinNanos),
+                               MAXIMUM_SPIN_NANOS);
+        if (target > spinNanos) {
+            spinNanos = target;
+        } else {
+            spinNanos -= (spinNanos - target) >> 6;
+        }
+    }
+
+    /**
+     * @return current spin window in nanoseconds
+     */
+    public long getSpinNanos() {
+        return spinNanos;
+    }
+
+}
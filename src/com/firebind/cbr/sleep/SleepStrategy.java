@@ -32,4 +32,15 @@ public interface SleepStrategy {
      */
     void sleep(long nanoseconds) throws InterruptedException;
 
+    /**
+     * Causes the currently executing thread to sleep until an absolute
+     * deadline. Strategies that can wait for a deadline directly should
+     * override this, the default converts to a relative sleep.
+     * 
+     * @param deadlineNanos deadline from {@link System#nanoTime()}
+     */
+    default void sleepUntil(long deadlineNanos) throws InterruptedException {
+        sleep(deadlineNanos - System.nanoTime());
+    }
+
 }
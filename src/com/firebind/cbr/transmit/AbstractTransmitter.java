@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.transmit;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.firebind.cbr.Utils;
+
+/**
+ * Common plumbing shared by the transmitters: channel and buffer setup,
+ * sending datagrams through a {@link SendBackend} and notifying an optional
+ * {@link DepartureListener}. Subclasses supply the pacing loop.
+ *
+ * @author agent
+ *
+ */
+public abstract class AbstractTransmitter implements Transmitter {
+
+  /**
+   * source ports handed out when running without a network
+   */
+  private static final AtomicInteger NO_NETWORK_PORTS = new AtomicInteger();
+
+  /**
+   * batching backend, built from a separate source tree only where the
+   * compiler has the Foreign Function &amp; Memory API, see
+   * {@link #openBackend(InetSocketAddress)}
+   */
+  static final String BATCH_BACKEND_CLASS =
+      "com.firebind.cbr.transmit.MmsgSendBackend";
+
+  /**
+   * constructor of the batching backend taking the target, null when it was
+   * not built or cannot run on this JVM and platform
+   */
+  private static final Constructor<? extends SendBackend> BATCH_BACKEND =
+      batchBackend();
+
+  /**
+   * configuration parameters for this transmitter
+   */
+  protected Parameters parameters;
+
+  /**
+   * datagrams to send per period
+   */
+  protected int datagramsPerCycle;
+
+  /**
+   * channel handed to us or leased from the pool, null when we send on a
+   * backend of our own or the network is disabled
+   */
+  protected DatagramChannel channel;
+
+  /**
+   * what datagrams are sent through, null when the network is disabled
+   */
+  protected SendBackend backend;
+
+  /**
+   * working buffer, contains exactly one datagram
+   */
+  protected ByteBuffer buffer;
+
+  /**
+   * local IP address and port datagrams are sent from
+   */
+  protected InetSocketAddress source;
+
+  /**
+   * optional observer of every datagram sent
+   */
+  protected DepartureListener departureListener;
+
+  /**
+   * when false datagrams are only accounted for and never hit the network
+   */
+  protected boolean networkEnabled = true;
+
+  /**
+   * true when the channel was handed to us and is not ours to open or close
+   */
+  protected boolean sharedChannel;
+
+  /**
+   * optional pool to lease a shared channel from on every run
+   */
+  protected ChannelPool channelPool;
+
+  /**
+   * lease on a pooled channel for the current or last run
+   */
+  protected ChannelPool.Lease lease;
+
+  /**
+   * source port range to lease a pooled channel from, 0 for the pool's own
+   */
+  protected int firstSourcePort;
+  protected int lastSourcePort;
+
+  /**
+   * when false the result is only kept, not printed
+   */
+  protected boolean printResult = true;
+
+  /**
+   * outcome of the last run
+   */
+  protected Result result;
+
+  /* (non-Javadoc)
+   * @see com.firebind.cbr.transmit.Transmitter#transmit(com.firebind.cbr.transmit.Parameters)
+   */
+  @Override
+  public void transmit(Parameters parameters) throws IOException {
+    this.parameters = parameters;
+    try {
+      setup();
+      perform();
+    } finally {
+      teardown();
+    }
+  }
+
+  /**
+   * Calculate our data sizing, setup UDP channel and initialize a send buffer.
+   *
+   * @throws IOException when the channel cannot be opened
+   */
+  protected void setup() throws IOException {
+    datagramsPerCycle = Utils.calculateDatagramsPerCycle(
+        parameters.getDatagramPayloadSizeBytes(),
+        parameters.getRateBitsPerSecond(), 0.250);
+
+    // without a network nothing is leased or opened, shared or not
+    lease = null;
+    if (networkEnabled) {
+      if (null != channelPool) {
+        lease = firstSourcePort > 0 ?
+            channelPool.acquire(parameters.getTarget(),
+                                parameters.getRateBitsPerSecond(),
+                                firstSourcePort, lastSourcePort) :
+            channelPool.acquire(parameters.getTarget(),
+                                parameters.getRateBitsPerSecond());
+        channel = lease.getChannel();
+      }
+      if (sharedChannel || null != channelPool) {
+        backend = new NioSendBackend(channel);
+      } else {
+        backend = openBackend(parameters.getTarget());
+      }
+    }
+
+    if (null != backend) {
+      source = new InetSocketAddress(
+          Utils.localAddressFor(parameters.getTarget()),
+          backend.getLocalAddress().getPort());
+    } else {
+      source = new InetSocketAddress(
+          Utils.localAddressFor(parameters.getTarget()),
+          49152 + (NO_NETWORK_PORTS.getAndIncrement() & 0x3fff));
+    }
+
+    /*
+     * Size our transmit buffer to our datagram size. You may choose to use a
+     * direct buffer for possible better performance at higher transmit rates,
+     * However be aware that direct buffers are usually allocated off-heap and
+     * hence subject to special treatment by the garbage collector.
+     *
+     */
+    buffer = ByteBuffer.allocate(parameters.getDatagramPayloadSizeBytes());
+    Utils.fill(buffer); // initialize with your favorite payload
+  }
+
+  /**
+   * Perform the pacing loop for this approach to CBR streaming
+   *
+   * @throws IOException when an error occurs during networking
+   */
+  protected abstract void perform() throws IOException;
+
+  /**
+   * Open the backend to send on when we don't share a channel. The batching
+   * backend is used where it was built and the platform supports it,
+   * otherwise a channel of our own.
+   *
+   * @param target where we will send to, selects the address family
+   * @return backend owned by this transmitter
+   * @throws IOException when the socket cannot be opened
+   */
+  protected SendBackend openBackend(InetSocketAddress target)
+      throws IOException {
+    if (null != BATCH_BACKEND) {
+      try {
+        return BATCH_BACKEND.newInstance(target);
+      } catch (ReflectiveOperationException | LinkageError e) {
+        // fall through to NIO
+      }
+    }
+    return NioSendBackend.open();
+  }
+
+  /**
+   * Send one cycle's worth of datagrams. Pacing works in whole cycles, so a
+   * backend able to hand the kernel a batch of datagrams per call gets the
+   * whole cycle at once.
+   *
+   * @return number of bytes sent
+   * @throws IOException when an error occurs during networking
+   */
+  protected long sendCycle() throws IOException {
+    return sendDatagrams(datagramsPerCycle);
+  }
+
+  /**
+   * Send the working buffer as exactly one datagram and notify the departure
+   * listener, if any.
+   *
+   * @return number of bytes sent
+   * @throws IOException when an error occurs during networking
+   */
+  protected int sendDatagram() throws IOException {
+    return (int) sendDatagrams(1);
+  }
+
+  /**
+   * Send the working buffer as the given number of datagrams, in batches as
+   * large as the backend takes, and notify the departure listener of each.
+   * Datagrams handed over in one batch share a departure time.
+   *
+   * @param count number of datagrams to send
+   * @return number of bytes sent
+   * @throws IOException when an error occurs during networking
+   */
+  protected long sendDatagrams(int count) throws IOException {
+    int size = buffer.remaining();
+    long byteCount = 0;
+    while (count > 0) {
+      int sent = count;
+      if (null != backend) {
+        /*
+         * If there is sufficient room in the underlying send buffer, then
+         * the datagrams are transmitted. Which means there is no guarantee
+         * that any will be sent. So aggressively (repeatedly) try to send,
+         * eventually the send buffer will have room.
+         */
+        sent = backend.send(buffer,
+            Math.min(count, backend.getMaximumBatchSize()),
+            parameters.getTarget());
+        if (0 == sent) {
+          if (sharedChannel || null != channelPool) {
+            /*
+             * Other flows are filling the same socket buffer, spinning here
+             * would only take the socket from them. Give them a turn.
+             */
+            if (null != lease) {
+              lease.stallCount++;
+            }
+            Thread.yield();
+          }
+          continue;
+        }
+        if (null != lease) {
+          lease.packetCount += sent;
+          lease.byteCount += (long) sent * size;
+        }
+      }
+      count -= sent;
+      byteCount += (long) sent * size;
+      // optionally refill buffer here to send different data
+
+      if (null != departureListener) {
+        long departed = System.nanoTime();
+        for (int datagram = 0; datagram < sent; datagram++) {
+          departureListener.departed(departed, buffer, source,
+                                     parameters.getTarget());
+        }
+      }
+    }
+    return byteCount;
+  }
+
+  /**
+   * Teardown and close out our resources
+   *
+   * @throws IOException when an error during channel close occurs
+   */
+  protected void teardown() throws IOException {
+    if (null != buffer) {
+      buffer.clear();
+    }
+    if (null != channelPool) {
+      if (null != lease) {
+        channelPool.release(lease);
+      }
+      channel = null;
+    } else if (null != backend && !sharedChannel) {
+      backend.close();
+    }
+    backend = null;
+  }
+
+  /**
+   * @return outcome of the last run, null before the first run completes
+   */
+  public Result getResult() {
+    return result;
+  }
+
+  /**
+   * Use an already bound channel, possibly shared with other transmitters,
+   * instead of opening one. The channel is left open on teardown.
+   *
+   * @param channel bound, non-blocking channel to send on
+   */
+  public void setChannel(DatagramChannel channel) {
+    this.channel = channel;
+    this.sharedChannel = null != channel;
+  }
+
+  /**
+   * Lease a channel from a pool on every run instead of opening one. Takes
+   * precedence over {@link #setChannel(DatagramChannel)}.
+   *
+   * @param channelPool pool to lease from, null to stop using one
+   */
+  public void setChannelPool(ChannelPool channelPool) {
+    this.channelPool = channelPool;
+  }
+
+  /**
+   * Lease from channels bound within this source port range rather than the
+   * pool's own range, see
+   * {@link ChannelPool#acquire(InetSocketAddress, long, int, int)}. Only
+   * used with a channel pool.
+   *
+   * @param firstSourcePort first port of the range, 0 for the pool's range
+   * @param lastSourcePort last port of the range
+   */
+  public void setSourcePorts(int firstSourcePort, int lastSourcePort) {
+    this.firstSourcePort = firstSourcePort;
+    this.lastSourcePort = lastSourcePort;
+  }
+
+  /**
+   * @return lease on a pooled channel for the current or last run, null
+   * when no pool is used
+   */
+  public ChannelPool.Lease getLease() {
+    return lease;
+  }
+
+  /**
+   * @param printResult false to keep the result quiet, see
+   * {@link #getResult()}
+   */
+  public void setPrintResult(boolean printResult) {
+    this.printResult = printResult;
+  }
+
+  /**
+   * @param departureListener observer to notify of every datagram sent
+   */
+  public void setDepartureListener(DepartureListener departureListener) {
+    this.departureListener = departureListener;
+  }
+
+  /**
+   * @param networkEnabled false to skip the network entirely and only run the
+   * pacing, useful together with a departure listener. Nothing is leased
+   * from a channel pool or sent on a shared channel either.
+   */
+  public void setNetworkEnabled(boolean networkEnabled) {
+    this.networkEnabled = networkEnabled;
+  }
+
+  /**
+   * Look up the batching backend. It is compiled for a newer Java than the
+   * rest and fails to load, or to initialize, wherever it cannot work.
+   */
+  private static Constructor<? extends SendBackend> batchBackend() {
+    try {
+      return Class.forName(BATCH_BACKEND_CLASS)
+          .asSubclass(SendBackend.class)
+          .getConstructor(InetSocketAddress.class);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+
+}
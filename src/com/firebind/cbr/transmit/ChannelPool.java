@@ -0,0 +1,350 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.transmit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.Inet6Address;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.firebind.cbr.Utils;
+
+/**
+ * Spreads many flows over a small, fixed number of sockets, so thousands of
+ * flows don't cost thousands of file descriptors and socket buffers.
+ *
+ * <p>Up to a configured number of channels is opened per address family, on
+ * demand. A flow leases the channel with the least configured rate on it
+ * when it starts and hands it back when it stops, so channels carry similar
+ * loads even when flow rates differ. Channels can be bound to ports from a
+ * given source port range instead of ephemeral ports, for the whole pool or
+ * per flow. Flows asking for the same range share the channels bound in it,
+ * and the limit on the number of channels applies to each range on its
+ * own.</p>
+ *
+ * <p>Flows on the same channel send from the same address and port, so a
+ * receiver telling flows apart by source sees them as one. Give each flow a
+ * channel of its own, or a range of its own, to keep them apart.</p>
+ *
+ * <p>Every lease keeps its own packet, byte and stall counts, a stall being
+ * a send that found the socket buffer full. Transmitters back off on a stall
+ * rather than spin on the shared socket, see
+ * {@link AbstractTransmitter#sendDatagrams(int)}.</p>
+ *
+ * @author agent
+ *
+ */
+public class ChannelPool implements Closeable {
+
+  /**
+   * maximum number of channels per address family and source port range
+   */
+  protected final int channelCount;
+
+  /**
+   * source port range to bind channels to when a flow asks for none, 0 for
+   * ephemeral ports
+   */
+  protected int firstSourcePort;
+  protected int lastSourcePort;
+
+  /**
+   * requested socket send buffer size, 0 leaves the OS default
+   */
+  protected int sendBufferSizeBytes = 1 << 20;
+
+  /**
+   * open channels, per address family and source port range
+   */
+  private final Map<String, ChannelGroup> groups =
+      new LinkedHashMap<String, ChannelGroup>();
+
+  /**
+   * @param channelCount maximum number of channels per address family and
+   * source port range
+   */
+  public ChannelPool(int channelCount) {
+    super();
+    this.channelCount = Math.max(channelCount, 1);
+  }
+
+  /**
+   * Lease a channel for one flow, from the pool's source port range
+   *
+   * @param target where the flow sends to, selects the address family
+   * @param rateBitsPerSecond configured rate of the flow
+   * @return lease to send on and to release once the flow stops
+   * @throws IOException when a channel cannot be opened
+   */
+  public Lease acquire(InetSocketAddress target, long rateBitsPerSecond)
+      throws IOException {
+    return acquire(target, rateBitsPerSecond, firstSourcePort,
+                   lastSourcePort);
+  }
+
+  /**
+   * Lease a channel for one flow, bound within the given source port range
+   *
+   * @param target where the flow sends to, selects the address family
+   * @param rateBitsPerSecond configured rate of the flow
+   * @param firstSourcePort first port of the range, 0 for ephemeral ports
+   * @param lastSourcePort last port of the range
+   * @return lease to send on and to release once the flow stops
+   * @throws IOException when a channel cannot be opened
+   */
+  public synchronized Lease acquire(InetSocketAddress target,
+                                    long rateBitsPerSecond,
+                                    int firstSourcePort,
+                                    int lastSourcePort)
+      throws IOException {
+    // channels can only be shared within an address family
+    boolean inet6 = target.getAddress() instanceof Inet6Address;
+    String key = (inet6 ? "6:" : "4:") + firstSourcePort + "-"
+        + (firstSourcePort > 0 ? lastSourcePort : 0);
+    ChannelGroup group = groups.get(key);
+    if (null == group) {
+      group = new ChannelGroup(firstSourcePort, lastSourcePort);
+      groups.put(key, group);
+    }
+    List<PooledChannel> channels = group.channels;
+
+    PooledChannel chosen = null;
+    boolean portLeft = 0 == firstSourcePort
+        || firstSourcePort + group.boundCount <= lastSourcePort;
+    if (channels.isEmpty() || (channels.size() < channelCount && portLeft)) {
+      chosen = new PooledChannel(open(group));
+      channels.add(chosen);
+    } else {
+      for (PooledChannel candidate : channels) {
+        if (null == chosen
+            || candidate.activeRate < chosen.activeRate
+            || (candidate.activeRate == chosen.activeRate
+                && candidate.activeCount < chosen.activeCount)) {
+          chosen = candidate;
+        }
+      }
+    }
+    chosen.activeRate += rateBitsPerSecond;
+    chosen.activeCount++;
+    Lease lease = new Lease(chosen, rateBitsPerSecond);
+    chosen.leases.add(lease);
+    return lease;
+  }
+
+  /**
+   * Hand a channel back, its counts stay with the pool
+   *
+   * @param lease lease from {@link #acquire(InetSocketAddress, long)}
+   */
+  public synchronized void release(Lease lease) {
+    if (!lease.released) {
+      lease.released = true;
+      lease.pooled.activeRate -= lease.rateBitsPerSecond;
+      lease.pooled.activeCount--;
+    }
+  }
+
+  private DatagramChannel open(ChannelGroup group) throws IOException {
+    DatagramChannel channel = DatagramChannel.open();
+    try {
+      if (sendBufferSizeBytes > 0) {
+        channel.setOption(StandardSocketOptions.SO_SNDBUF,
+                          sendBufferSizeBytes);
+      }
+      channel.configureBlocking(false);
+      if (group.firstSourcePort > 0) {
+        int port = group.firstSourcePort + group.boundCount;
+        if (port > group.lastSourcePort) {
+          throw new IOException("source port range " + group.firstSourcePort
+              + "-" + group.lastSourcePort + " is too small for "
+              + (group.boundCount + 1) + " channels");
+        }
+        channel.bind(new InetSocketAddress(port));
+      } else {
+        channel.bind(null);
+      }
+      group.boundCount++;
+      return channel;
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Print one line per channel with its load and totals over its leases.
+   * Only call once the flows have stopped.
+   *
+   * @param out where to print
+   */
+  public synchronized void print(PrintStream out) {
+    for (ChannelGroup group : groups.values()) {
+      for (PooledChannel pooled : group.channels) {
+        long packetCount = 0;
+        long byteCount = 0;
+        long stallCount = 0;
+        for (Lease lease : pooled.leases) {
+          packetCount += lease.packetCount;
+          byteCount += lease.byteCount;
+          stallCount += lease.stallCount;
+        }
+        out.println("channel " + pooled.localAddress + ": "
+            + pooled.leases.size() + " flows, "
+            + Utils.commaIntegerFormat(packetCount) + " packets, "
+            + Utils.commaIntegerFormat(byteCount) + " bytes, "
+            + Utils.commaIntegerFormat(stallCount) + " stalled sends");
+      }
+    }
+  }
+
+  /**
+   * Close every channel, outstanding leases can no longer send
+   *
+   * @throws IOException when a channel cannot be closed
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    IOException failure = null;
+    for (ChannelGroup group : groups.values()) {
+      for (PooledChannel pooled : group.channels) {
+        try {
+          pooled.channel.close();
+        } catch (IOException e) {
+          failure = e;
+        }
+      }
+    }
+    if (null != failure) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Bind channels to consecutive ports from a range rather than to ephemeral
+   * ports, so the flows can be told apart, or let through a firewall, by
+   * source port. Once the range is used up no more channels are opened and
+   * flows share the ones there are. Applies to flows that don't ask for a
+   * range of their own, which should not overlap with this one.
+   *
+   * @param firstSourcePort first port of the range, 0 for ephemeral ports
+   * @param lastSourcePort last port of the range
+   */
+  public void setSourcePorts(int firstSourcePort, int lastSourcePort) {
+    this.firstSourcePort = firstSourcePort;
+    this.lastSourcePort = lastSourcePort;
+  }
+
+  /**
+   * @param sendBufferSizeBytes socket send buffer size to request for each
+   * channel, 0 to leave the OS default
+   */
+  public void setSendBufferSizeBytes(int sendBufferSizeBytes) {
+    this.sendBufferSizeBytes = sendBufferSizeBytes;
+  }
+
+  /**
+   * Channels of one address family bound within one source port range
+   */
+  static class ChannelGroup {
+
+    final int firstSourcePort;
+    final int lastSourcePort;
+    final List<PooledChannel> channels = new ArrayList<PooledChannel>();
+
+    /**
+     * number of channels bound so far, picks the next source port
+     */
+    int boundCount;
+
+    ChannelGroup(int firstSourcePort, int lastSourcePort) {
+      this.firstSourcePort = firstSourcePort;
+      this.lastSourcePort = lastSourcePort;
+    }
+  }
+
+  /**
+   * A channel and what is currently leased on it
+   */
+  static class PooledChannel {
+
+    final DatagramChannel channel;
+    final InetSocketAddress localAddress;
+    final List<Lease> leases = new ArrayList<Lease>();
+    long activeRate;
+    int activeCount;
+
+    PooledChannel(DatagramChannel channel) throws IOException {
+      this.channel = channel;
+      this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+    }
+  }
+
+  /**
+   * One flow's use of a pooled channel. The counts are only updated by the
+   * flow's own thread, read them once it has stopped.
+   */
+  public static class Lease {
+
+    final PooledChannel pooled;
+    final long rateBitsPerSecond;
+    boolean released;
+    long packetCount;
+    long byteCount;
+    long stallCount;
+
+    Lease(PooledChannel pooled, long rateBitsPerSecond) {
+      this.pooled = pooled;
+      this.rateBitsPerSecond = rateBitsPerSecond;
+    }
+
+    /**
+     * @return channel to send on, shared with other leases
+     */
+    public DatagramChannel getChannel() {
+      return pooled.channel;
+    }
+
+    /**
+     * @return datagrams sent on this lease
+     */
+    public long getPacketCount() {
+      return packetCount;
+    }
+
+    /**
+     * @return bytes sent on this lease
+     */
+    public long getByteCount() {
+      return byteCount;
+    }
+
+    /**
+     * @return sends that found the socket buffer full
+     */
+    public long getStallCount() {
+      return stallCount;
+    }
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.transmit;
+
+import java.math.BigInteger;
+
+/**
+ * Absolute deadlines for the start of each cycle, with no rounding error
+ * building up over time.
+ *
+ * <p>A cycle of <i>b</i> bits at <i>r</i> bits per second lasts
+ * <i>b</i> &times; 10<sup>9</sup> / <i>r</i> nanoseconds, which is rarely a
+ * whole number. Rounding it once and adding it up makes the rate off by
+ * the rounding error for the whole run. Instead each step advances by the
+ * whole nanoseconds and carries the remainder, in units of 1/<i>r</i>
+ * nanoseconds, adding a nanosecond whenever the carry reaches a whole one,
+ * as Bresenham's line algorithm does. Cycle <i>k</i> then starts exactly
+ * floor(<i>k</i> &times; <i>b</i> &times; 10<sup>9</sup> / <i>r</i>)
+ * nanoseconds after the first, for any <i>b</i> and <i>r</i>.</p>
+ *
+ * <p>The split into whole nanoseconds and remainder is done once, with
+ * arbitrary precision, so nothing overflows however large the cycle or
+ * rate. A step is then an add, a compare and rarely a subtract.</p>
+ *
+ * @author agent
+ *
+ */
+public class CycleSchedule {
+
+  /**
+   * whole nanoseconds per cycle
+   */
+  protected final long wholeNanos;
+
+  /**
+   * fraction of a nanosecond per cycle, in 1/rate nanoseconds
+   */
+  protected final long remainder;
+
+  /**
+   * rate in bits per second, the denominator of the remainder
+   */
+  protected final long rateBitsPerSecond;
+
+  /**
+   * start of the next cycle, from {@link System#nanoTime()}
+   */
+  protected long deadline;
+
+  /**
+   * carried fraction of a nanosecond, in 1/rate nanoseconds
+   */
+  protected long error;
+
+  /**
+   * @param bitsPerCycle bits sent per cycle
+   * @param rateBitsPerSecond rate in bits per second
+   */
+  public CycleSchedule(long bitsPerCycle, long rateBitsPerSecond) {
+    super();
+    if (bitsPerCycle <= 0 || rateBitsPerSecond <= 0) {
+      throw new IllegalArgumentException("bits per cycle " + bitsPerCycle
+          + " and rate " + rateBitsPerSecond + " must be positive");
+    }
+    BigInteger[] division = BigInteger.valueOf(bitsPerCycle)
+        .multiply(BigInteger.valueOf(1000000000L))
+        .divideAndRemainder(BigInteger.valueOf(rateBitsPerSecond));
+    if (division[0].bitLength() > 62) {
+      throw new IllegalArgumentException("cycle of " + bitsPerCycle
+          + " bits at " + rateBitsPerSecond + " bps is too long");
+    }
+    this.wholeNanos = division[0].longValue();
+    this.remainder = division[1].longValue();
+    this.rateBitsPerSecond = rateBitsPerSecond;
+  }
+
+  /**
+   * @param startNanos start of the first cycle, from
+   *          {@link System#nanoTime()}
+   */
+  public void start(long startNanos) {
+    deadline = startNanos;
+    error = 0;
+  }
+
+  /**
+   * Advance to the next cycle
+   *
+   * @return start of the cycle after the one just begun
+   */
+  public long next() {
+    deadline += wholeNanos;
+    error += remainder;
+    if (error >= rateBitsPerSecond) {
+      error -= rateBitsPerSecond;
+      deadline++;
+    }
+    return deadline;
+  }
+
+  /**
+   * @return start of the next cycle, from {@link System#nanoTime()}
+   */
+  public long getDeadline() {
+    return deadline;
+  }
+
+  /**
+   * @return exact period in nanoseconds, for display
+   */
+  public double getPeriodNanos() {
+    return wholeNanos + (double) remainder / rateBitsPerSecond;
+  }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.transmit;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Callback for observing every datagram a transmitter sends. This is called
+ * on the transmit thread right after each send, so implementations must be
+ * quick and must not block.
+ *
+ * @author agent
+ *
+ */
+public interface DepartureListener {
+
+  /**
+   * Called once for each datagram that has departed
+   *
+   * @param nanoTime departure time from {@link System#nanoTime()}
+   * @param datagram the datagram payload between position and limit,
+   *          implementations must not modify position or limit
+   * @param source local IP address and port the datagram was sent from
+   * @param target IP address and port the datagram was sent to
+   * @throws IOException when the departure cannot be recorded
+   */
+  void departed(long nanoTime,
+                ByteBuffer datagram,
+                InetSocketAddress source,
+                InetSocketAddress target) throws IOException;
+
+}
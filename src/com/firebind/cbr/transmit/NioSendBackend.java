@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.transmit;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Sends on a non-blocking {@link DatagramChannel}, one system call per
+ * datagram. Available everywhere, and the fallback whenever a batching
+ * backend is not.
+ *
+ * @author agent
+ *
+ */
+public class NioSendBackend implements SendBackend {
+
+  /**
+   * channel to send on, bound and non-blocking
+   */
+  protected final DatagramChannel channel;
+
+  /**
+   * @param channel bound, non-blocking channel to send on
+   */
+  public NioSendBackend(DatagramChannel channel) {
+    super();
+    this.channel = channel;
+  }
+
+  /**
+   * Open a channel of our own, bound to an ephemeral port
+   *
+   * @return backend owning the new channel
+   * @throws IOException when the channel cannot be opened
+   */
+  public static NioSendBackend open() throws IOException {
+    DatagramChannel channel = DatagramChannel.open();
+    try {
+      channel.configureBlocking(false);
+      channel.bind(null); // pick our ephemeral port now rather than on send
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return new NioSendBackend(channel);
+  }
+
+  /* (non-Javadoc)
+   * @see com.firebind.cbr.transmit.SendBackend#send(java.nio.ByteBuffer, int, java.net.InetSocketAddress)
+   */
+  @Override
+  public int send(ByteBuffer datagram, int count, InetSocketAddress target)
+      throws IOException {
+    int position = datagram.position();
+    for (int sent = 0; sent < count; sent++) {
+      /*
+       * A datagram either goes out whole or, when the socket send buffer
+       * is full, not at all.
+       */
+      int byteCount = channel.send(datagram, target);
+      datagram.position(position);
+      if (0 == byteCount) {
+        return sent;
+      }
+    }
+    return count;
+  }
+
+  /* (non-Javadoc)
+   * @see com.firebind.cbr.transmit.SendBackend#getMaximumBatchSize()
+   */
+  @Override
+  public int getMaximumBatchSize() {
+    return 1;
+  }
+
+  /* (non-Javadoc)
+   * @see com.firebind.cbr.transmit.SendBackend#getLocalAddress()
+   */
+  @Override
+  public InetSocketAddress getLocalAddress() throws IOException {
+    return (InetSocketAddress) channel.getLocalAddress();
+  }
+
+  /**
+   * Close the channel
+   *
+   * @throws IOException when the channel cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * @return channel sent on
+   */
+  public DatagramChannel getChannel() {
+    return channel;
+  }
+
+}
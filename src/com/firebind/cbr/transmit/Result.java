@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.transmit;
+
+import com.firebind.cbr.Utils;
+
+/**
+ * Data object for the outcome of a single transmit run, as measured by the
+ * transmitter
+ *
+ * @author agent
+ *
+ */
+public class Result {
+
+  /**
+   * parameters the run was performed with
+   */
+  protected final Parameters parameters;
+
+  /**
+   * number of datagrams sent
+   */
+  protected final long packetCount;
+
+  /**
+   * number of payload bytes sent
+   */
+  protected final long byteCount;
+
+  /**
+   * start of the run, from {@link System#nanoTime()}
+   */
+  protected final long startNanos;
+
+  /**
+   * end of the run, from {@link System#nanoTime()}
+   */
+  protected final long stopNanos;
+
+  /**
+   * datagrams sent per period
+   */
+  protected final int datagramsPerCycle;
+
+  /**
+   * @param parameters parameters the run was performed with
+   * @param packetCount number of datagrams sent
+   * @param byteCount number of payload bytes sent
+   * @param startNanos start of the run
+   * @param stopNanos end of the run
+   * @param datagramsPerCycle datagrams sent per period
+   */
+  public Result(Parameters parameters,
+                long packetCount,
+                long byteCount,
+                long startNanos,
+                long stopNanos,
+                int datagramsPerCycle) {
+    super();
+    this.parameters = parameters;
+    this.packetCount = packetCount;
+    this.byteCount = byteCount;
+    this.startNanos = startNanos;
+    this.stopNanos = stopNanos;
+    this.datagramsPerCycle = datagramsPerCycle;
+  }
+
+  /**
+   * @return parameters the run was performed with
+   */
+  public Parameters getParameters() {
+    return parameters;
+  }
+
+  /**
+   * @return number of datagrams sent
+   */
+  public long getPacketCount() {
+    return packetCount;
+  }
+
+  /**
+   * @return number of payload bytes sent
+   */
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * @return start of the run, from {@link System#nanoTime()}
+   */
+  public long getStartNanos() {
+    return startNanos;
+  }
+
+  /**
+   * @return end of the run, from {@link System#nanoTime()}
+   */
+  public long getStopNanos() {
+    return stopNanos;
+  }
+
+  /**
+   * @return datagrams sent per period
+   */
+  public int getDatagramsPerCycle() {
+    return datagramsPerCycle;
+  }
+
+  /**
+   * @return overall rate in bits per second
+   */
+  public double getRate() {
+    return Utils.calculateRate(byteCount, stopNanos - startNanos);
+  }
+
+  /**
+   * @return overall rate with respect to configured rate (percent)
+   */
+  public double getAccuracy() {
+    return Utils.calculateAccuracy(getRate(),
+                                   parameters.getRateBitsPerSecond());
+  }
+
+}
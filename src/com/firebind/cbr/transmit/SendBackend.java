@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.transmit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * A UDP socket and the way datagrams are handed to the kernel. The default,
+ * {@link NioSendBackend}, makes one system call per datagram. Backends able
+ * to hand over a batch of datagrams per call say so through
+ * {@link #getMaximumBatchSize()}, and transmitters then give them up to a
+ * whole cycle at once.
+ *
+ * @author agent
+ *
+ */
+public interface SendBackend extends Closeable {
+
+  /**
+   * Send copies of one datagram
+   *
+   * @param datagram the datagram payload between position and limit, left
+   *          as it is
+   * @param count number of copies to send, at most
+   *          {@link #getMaximumBatchSize()}
+   * @param target IP address and port to send to
+   * @return number of datagrams sent, fewer than count when the socket send
+   *         buffer is full
+   * @throws IOException when an error occurs during networking
+   */
+  int send(ByteBuffer datagram, int count, InetSocketAddress target)
+      throws IOException;
+
+  /**
+   * @return largest number of datagrams worth passing to one
+   *         {@link #send(ByteBuffer, int, InetSocketAddress)}, 1 when every
+   *         datagram is its own system call anyway
+   */
+  int getMaximumBatchSize();
+
+  /**
+   * @return local address and port datagrams are sent from
+   * @throws IOException when the address cannot be determined
+   */
+  InetSocketAddress getLocalAddress() throws IOException;
+
+}
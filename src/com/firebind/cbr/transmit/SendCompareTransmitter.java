@@ -17,8 +17,6 @@
 package com.firebind.cbr.transmit;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.DatagramChannel;
 
 import com.firebind.cbr.Utils;
 
@@ -40,73 +38,18 @@ import com.firebind.cbr.Utils;
  * @author Jay Houghton
  *
  */
-public class SendCompareTransmitter implements Transmitter {
-
-  /**
-   * configuration parameters for this transmitter
-   */
-  protected Parameters parameters;
-  
-  /**
-   * datagrams to send per period
-   */
-  protected int datagramsPerCycle;
-
-  /**
-   * I/O channel for transmitting
-   */
-  protected DatagramChannel channel;
-  
-  /**
-   * working buffer, contains exactly one datagram
-   */
-  protected ByteBuffer buffer;
-
-  /* (non-Javadoc)
-   * @see 
-   * com.firebind.cbr.transmit.Transmitter#transmit(com.firebind.cbr.transmit.Parameters)
-   */
-  @Override
-  public void transmit(Parameters parameters) throws IOException {
-    this.parameters = parameters;
-    try {
-      setup();
-      perform();
-    } finally {
-      teardown();
-    }
-  }
-
-  /**
-   * Calculate our data sizing, setup UDP channel and initialize a send buffer.
-   * @throws IOException 
-   */
-  protected void setup() throws IOException {
-    datagramsPerCycle = Utils.calculateDatagramsPerCycle(
-        parameters.getDatagramPayloadSizeBytes(), 
-        parameters.getRateBitsPerSecond(), 0.250);
-    channel = DatagramChannel.open();
-    channel.configureBlocking(false);
-
-    /*
-     * Size our transmit buffer to our datagram size. You may choose to use a
-     * direct buffer for possible better performance at higher transmit rates,
-     * However be aware that direct buffers are usually allocated off-heap and
-     * hence subject to special treatment by the garbage collector.
-     * 
-     */
-    buffer = ByteBuffer.allocate(parameters.getDatagramPayloadSizeBytes());
-    Utils.fill(buffer); // initialize with your favorite payload
-  }
+public class SendCompareTransmitter extends AbstractTransmitter {
 
   /**
    * Perform the Send and Compare approach to CBR streaming
    * 
    * @throws IOException when an error occurs during networking
    */
+  @Override
   protected void perform() throws IOException {
 
     long byteCount = 0;
+    long packetCount = 0;
     long transmitterStart = System.currentTimeMillis();
     long transmitterEndTime 
         = transmitterStart + parameters.getDurationSeconds() * 1000;
@@ -122,51 +65,24 @@ public class SendCompareTransmitter implements Transmitter {
                                                                                                            
       // here is the rate comparison, send only if we're below target rate
       if (rate < parameters.getRateBitsPerSecond()) {
-        for (int datagram = 0; datagram < datagramsPerCycle; datagram++) {
-          
-          /*
-           * If there is sufficient room in the underlying send buffer, then 
-           * the bytes in the buffer are transmitted as a single datagram. 
-           * Which means there is no guarantee that a datagram will be sent. 
-           * So aggressively (repeatedly) try to send the datagram, eventually
-           * the send buffer will have room. We could check for zero bytes 
-           * sent but its just as easy to use the buffer mechanics.
-           */
-          while (buffer.hasRemaining()) {
-            byteCount += channel.send(buffer, parameters.getTarget());
-          }
-          buffer.flip(); // flip only because buffer is 100% drained
-          // optionally refill buffer here to send different data
-        }
+        byteCount += sendCycle();
+        packetCount += datagramsPerCycle;
       }
 
     }
 
     long stopTime = System.nanoTime();
-    long transmitterDuration = stopTime - startTime;
-    
-    double overallRate = 
-        Utils.calculateRate(byteCount, transmitterDuration);
-    
-    // accuracy is the observed rate with respect to configured rate (percent)
-    double overallAccuracy = 
-       Utils.calculateAccuracy(overallRate, parameters.getRateBitsPerSecond());
-    
+    result = new Result(parameters, packetCount, byteCount, startTime,
+                        stopTime, datagramsPerCycle);
+    if (!printResult) {
+      return;
+    }
+
     // basic output for results, real result is at the receiver
     System.out.println("Overall rate is " 
-        + Utils.commaIntegerFormat(overallRate) + " bps ("
-        + Utils.tenths(overallAccuracy)
+        + Utils.commaIntegerFormat(result.getRate()) + " bps ("
+        + Utils.tenths(result.getAccuracy())
         + "%) with " + datagramsPerCycle + " packets/cycle");
   }
 
-  /**
-   * Teardown and close out our resources
-   * 
-   * @throws IOException when an error during channel close occurs
-   */
-  protected void teardown() throws IOException {
-    buffer.clear();
-    channel.close();
-  }
-
 }
@@ -17,8 +17,6 @@
 package com.firebind.cbr.transmit;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.DatagramChannel;
 
 import com.firebind.cbr.Utils;
 import com.firebind.cbr.sleep.SleepStrategy;
@@ -31,95 +29,50 @@ import com.firebind.cbr.sleep.SpinSleepStrategy;
  *   datagrams_per_cycle = 1 
  *   bits_per_cycle = payload_size * datagrams_per_cycle * 8
  *   period = bits_per_cycle / data_rate
+ *   deadline = now()
  *   while (not done) {
- *     send_start_time = now()
  *     send(datagrams)
- *     send_duration = now() - send_start_time
- *     sleep(period - send_time)
+ *     deadline = deadline + period
+ *     sleep_until(deadline)
  *   }
  * </pre>
+ * Deadlines are kept on an absolute schedule, see {@link CycleSchedule},
+ * so neither late wake-ups nor the fractional part of the period add up
+ * over a run. A transmitter that falls behind, say during a long garbage
+ * collection pause, sends its late cycles back to back to catch up.
  * 
  * @see <a href="https://www.firebind.com/blog/">Firebind blog article for
  * more details</a>
  * @author Jay Houghton
  *
  */
-public class SendSleepTransmitter implements Transmitter {
+public class SendSleepTransmitter extends AbstractTransmitter {
 
-  /**
-   * configuration parameters for this transmitter
-   */
-  protected Parameters parameters;
-  
   /**
    * the particular sleep strategy to employ when we sleep
    */
   protected SleepStrategy sleepStrategy;
 
   /**
-   * datagrams to send per period
-   */
-  protected int datagramsPerCycle;
-  
-  /**
-   * period (cycle time) value in nanoseconds
-   */
-  protected long nanosPerCycle;
-
-  /**
-   * I/O channel for transmitting
-   */
-  protected DatagramChannel channel;
-
-  /**
-   * working buffer, contains exactly one datagram
-   */
-  protected ByteBuffer buffer;
-
-  /* (non-Javadoc)
-   * @see com.firebind.cbr.transmit.Transmitter#transmit(com.firebind.cbr.transmit.Parameters)
+   * start of every cycle
    */
-  @Override
-  public void transmit(Parameters parameters) throws IOException {
-    this.parameters = parameters;
-    try {
-      setup();
-      perform();
-    } finally {
-      teardown();
-    }
-  }
+  protected CycleSchedule schedule;
 
   /**
-   * Calculate our data sizing, setup UDP channel and initialize a send buffer.
+   * Calculate our data sizing and period, setup UDP channel and initialize a
+   * send buffer.
    * 
    * @throws IOException
    */
+  @Override
   protected void setup() throws IOException {
-    datagramsPerCycle = 
-        Utils.calculateDatagramsPerCycle(
-            parameters.getDatagramPayloadSizeBytes(), 
-            parameters.getRateBitsPerSecond(), 0.250);
+    super.setup();
 
-    int bitsPerCycle = 8 * parameters.getDatagramPayloadSizeBytes() * 
+    long bitsPerCycle = 8L * parameters.getDatagramPayloadSizeBytes() * 
         datagramsPerCycle;
-    
-    nanosPerCycle = (long) (((double) bitsPerCycle) / 
-        ((double) parameters.getRateBitsPerSecond()) * 1000000000d);
-
-    channel = DatagramChannel.open();
-    channel.configureBlocking(false);
-
-    /*
-     * Size our transmit buffer to our datagram size. You may choose to use a
-     * direct buffer for possible better performance at higher transmit rates,
-     * However be aware that direct buffers are usually allocated off-heap and
-     * hence subject to special treatment by the garbage collector.
-     * 
-     */
-    buffer = ByteBuffer.allocate(parameters.getDatagramPayloadSizeBytes());
-    Utils.fill(buffer); // fill with your favorite payload
-    
+    schedule = new CycleSchedule(bitsPerCycle,
+                                 parameters.getRateBitsPerSecond());
+
     if (null == sleepStrategy) {
       sleepStrategy = new SpinSleepStrategy();
     }
@@ -130,37 +83,23 @@ public class SendSleepTransmitter implements Transmitter {
    * 
    * @throws IOException
    */
+  @Override
   protected void perform() throws IOException {
 
     long byteCount = 0;
+    long packetCount = 0;
     long transmitterStart = System.currentTimeMillis();
     long transmitterEndTime = 
         transmitterStart + parameters.getDurationSeconds() * 1000;
     long startTime = System.nanoTime();
+    schedule.start(startTime);
     
     while (System.currentTimeMillis() < transmitterEndTime) {
-      long cycleStart = System.nanoTime();
-      for (int cycle = 0; cycle < datagramsPerCycle; cycle++) {
-        
-        /*
-         * If there is sufficient room in the underlying send buffer, then 
-         * the bytes in the buffer are transmitted as a single datagram. 
-         * Which means there is no guarantee that a datagram will be sent. 
-         * So aggressively (repeatedly) try to send the datagram, eventually
-         * the send buffer will have room. We could check for zero bytes 
-         * sent but its just as easy to use the buffer mechanics.
-         */
-        while (buffer.hasRemaining()) {
-          byteCount += channel.send(buffer, parameters.getTarget());
-        }
-        buffer.flip(); // flip only because buffer is 100% drained
-        // optionally refill buffer here to send different data
-      }
-
-      long sleepTime = nanosPerCycle - (System.nanoTime() - cycleStart);
+      byteCount += sendCycle();
+      packetCount += datagramsPerCycle;
 
       try {
-        this.sleepStrategy.sleep(sleepTime);
+        this.sleepStrategy.sleepUntil(schedule.next());
       } catch (InterruptedException e) {
         throw new IOException(e);
       }
@@ -168,34 +107,21 @@ public class SendSleepTransmitter implements Transmitter {
     }
 
     long stopTime = System.nanoTime();
-    long transmitterDuration = stopTime - startTime;
-    
-    double overallRate = 
-        Utils.calculateRate(byteCount, transmitterDuration);
-    
-    // accuracy is the observed rate with respect to configured rate (percent)
-    double overallAccuracy = 
-        Utils.calculateAccuracy(overallRate,parameters.getRateBitsPerSecond());
-    
+    result = new Result(parameters, packetCount, byteCount, startTime,
+                        stopTime, datagramsPerCycle);
+    if (!printResult) {
+      return;
+    }
+
     // basic output for results, real result is at the receiver
     System.out.println("Overall rate is " 
-        + Utils.commaIntegerFormat(overallRate) + " bps ("
-        + Utils.tenths(overallAccuracy)
+        + Utils.commaIntegerFormat(result.getRate()) + " bps ("
+        + Utils.tenths(result.getAccuracy())
         + "%) with " + datagramsPerCycle + " packets/cycle with "
         + this.sleepStrategy.getClass().getSimpleName()
         );
   }
 
-  /**
-   * Teardown and close out our resources
-   * 
-   * @throws IOException when an error during channel close occurs
-   */
-  protected void teardown() throws IOException {
-    buffer.clear();
-    channel.close();
-  }
-
   public void setSleepStrategy(SleepStrategy sleepStrategy) {
     this.sleepStrategy = sleepStrategy;
   }
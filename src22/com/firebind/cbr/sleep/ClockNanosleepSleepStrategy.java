@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.sleep;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Sleep to an absolute deadline with Linux <code>clock_nanosleep</code> on
+ * <code>CLOCK_MONOTONIC</code> with <code>TIMER_ABSTIME</code>, through the
+ * Foreign Function &amp; Memory API. The kernel wakes the thread at the
+ * deadline itself, so there is no conversion to a relative sleep and no
+ * spinning. How late it wakes is the thread's timer slack, 50&micro;s by
+ * default, plus scheduling latency. Giving a timer slack sets it with
+ * <code>prctl(PR_SET_TIMERSLACK)</code> for each thread that sleeps.
+ *
+ * <p>{@link System#nanoTime()} reads <code>CLOCK_MONOTONIC</code> on Linux,
+ * so a deadline converts straight to a <code>timespec</code>. The
+ * initializer checks that, and that it runs on 64 bit Linux, and throws
+ * otherwise. The class needs Java 22 and lives in its own source tree, see
+ * the <code>compile-batch</code> target. Transmit creates it reflectively
+ * and falls back to {@link DeadlineSleepStrategy} when it is missing or
+ * cannot load. Instances are not thread safe, use one per transmitter.</p>
+ *
+ * @author agent
+ * @see DeadlineSleepStrategy
+ *
+ */
+public class ClockNanosleepSleepStrategy implements SleepStrategy {
+
+    /**
+     * from the Linux headers
+     */
+    static final int CLOCK_MONOTONIC = 1;
+    static final int TIMER_ABSTIME = 1;
+    static final int PR_SET_TIMERSLACK = 29;
+    static final int EINTR = 4;
+
+    /**
+     * a single native sleep lasts at most this long, so an interrupt is
+     * noticed within it
+     */
+    static final long MAXIMUM_SLICE_NANOS = 100000000L;
+
+    /**
+     * System.nanoTime() and CLOCK_MONOTONIC may be this far apart when read
+     * one after the other
+     */
+    static final long MAXIMUM_CLOCK_SKEW_NANOS = 10000000L;
+
+    private static final MethodHandle CLOCK_NANOSLEEP;
+    private static final MethodHandle CLOCK_GETTIME;
+    private static final MethodHandle PRCTL;
+
+    /**
+     * where errno lands in the captured call state
+     */
+    private static final long ERRNO_OFFSET;
+
+    static {
+        if (!System.getProperty("os.name").startsWith("Linux")
+            || ADDRESS.byteSize() != 8) {
+            throw new UnsupportedOperationException(
+                "clock_nanosleep needs 64 bit Linux");
+        }
+        Linker linker = Linker.nativeLinker();
+        SymbolLookup libc = linker.defaultLookup();
+        CLOCK_NANOSLEEP = linker.downcallHandle(
+            libc.find("clock_nanosleep").orElseThrow(),
+            FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT, ADDRESS,
+                                  ADDRESS));
+        CLOCK_GETTIME = linker.downcallHandle(
+            libc.find("clock_gettime").orElseThrow(),
+            FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS));
+        PRCTL = linker.downcallHandle(libc.find("prctl").orElseThrow(),
+            FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_LONG),
+            Linker.Option.firstVariadicArg(1),
+            Linker.Option.captureCallState("errno"));
+        ERRNO_OFFSET = Linker.Option.captureStateLayout()
+            .byteOffset(MemoryLayout.PathElement.groupElement("errno"));
+
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment now = arena.allocate(16, 8);
+            int status;
+            try {
+                status = (int) CLOCK_GETTIME.invokeExact(CLOCK_MONOTONIC, now);
+            } catch (Throwable e) {
+                throw new UnsupportedOperationException(e);
+            }
+            long skew = System.nanoTime() - (now.get(JAVA_LONG, 0)
+                * 1000000000L + now.get(JAVA_LONG, 8));
+            if (status != 0 || Math.abs(skew) > MAXIMUM_CLOCK_SKEW_NANOS) {
+                throw new UnsupportedOperationException(
+                    "System.nanoTime() is not CLOCK_MONOTONIC");
+            }
+        }
+    }
+
+    /**
+     * timer slack to set for each sleeping thread, 0 to leave it
+     */
+    private final long timerSlackNanos;
+
+    /**
+     * thread the timer slack was last set for
+     */
+    private Thread slackThread;
+
+    /**
+     * deadline handed to the kernel, a struct timespec
+     */
+    private final MemorySegment timespec = Arena.ofAuto().allocate(16, 8);
+
+    /**
+     * Leave the timer slack as it is
+     */
+    public ClockNanosleepSleepStrategy() {
+        this(0);
+    }
+
+    /**
+     * @param timerSlackNanos timer slack to set for each thread that sleeps,
+     *          0 to leave it as it is
+     */
+    public ClockNanosleepSleepStrategy(long timerSlackNanos) {
+        if (timerSlackNanos < 0) {
+            throw new IllegalArgumentException("timer slack "
+                + timerSlackNanos + " must not be negative");
+        }
+        this.timerSlackNanos = timerSlackNanos;
+    }
+
+    /* (non-Javadoc)
+     * @see com.firebind.sleep.SleepStrategy#sleep(long)
+     */
+    @Override
+    public void sleep(long nanoseconds) throws InterruptedException {
+        if (nanoseconds > 0) {
+            sleepUntil(System.nanoTime() + nanoseconds);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.firebind.sleep.SleepStrategy#sleepUntil(long)
+     */
+    @Override
+    public void sleepUntil(long deadlineNanos) throws InterruptedException {
+        if (timerSlackNanos > 0 && slackThread != Thread.currentThread()) {
+            setTimerSlack();
+        }
+        long now;
+        while ((now = System.nanoTime()) - deadlineNanos < 0) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long wake = deadlineNanos - now > MAXIMUM_SLICE_NANOS ?
+                now + MAXIMUM_SLICE_NANOS : deadlineNanos;
+            timespec.set(JAVA_LONG, 0, wake / 1000000000L);
+            timespec.set(JAVA_LONG, 8, wake % 1000000000L);
+            int error;
+            try {
+                error = (int) CLOCK_NANOSLEEP.invokeExact(CLOCK_MONOTONIC,
+                    TIMER_ABSTIME, timespec, MemorySegment.NULL);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            // an absolute sleep cut short by a signal is simply repeated
+            if (error != 0 && error != EINTR) {
+                throw new IllegalStateException(
+                    "clock_nanosleep failed with error " + error);
+            }
+        }
+    }
+
+    /**
+     * Set the timer slack of the current thread
+     */
+    private void setTimerSlack() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment callState =
+                arena.allocate(Linker.Option.captureStateLayout());
+            int status;
+            try {
+                status = (int) PRCTL.invokeExact(callState, PR_SET_TIMERSLACK,
+                                                 timerSlackNanos);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            if (status != 0) {
+                throw new IllegalStateException("prctl failed with errno "
+                    + callState.get(JAVA_INT, ERRNO_OFFSET));
+            }
+        }
+        slackThread = Thread.currentThread();
+    }
+
+    /**
+     * @return timer slack set for each sleeping thread, 0 when left as it is
+     */
+    public long getTimerSlackNanos() {
+        return timerSlackNanos;
+    }
+
+}
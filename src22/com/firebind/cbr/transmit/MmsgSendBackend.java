@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2026 agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.firebind.cbr.transmit;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import static java.lang.foreign.ValueLayout.JAVA_SHORT;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Sends a whole batch of datagrams with one Linux <code>sendmmsg</code>
+ * call, through the Foreign Function &amp; Memory API so no native library
+ * has to be built. Every message of the batch points at the same off-heap
+ * copy of the payload and the same target address.
+ *
+ * <p>This class needs Java 22 and lives in its own source tree, see the
+ * <code>compile-batch</code> target. {@link AbstractTransmitter} loads it
+ * reflectively and falls back to {@link NioSendBackend} when it is missing,
+ * or when its initializer finds anything but 64 bit Linux. Java warns once
+ * about the native access unless started with
+ * <code>--enable-native-access=ALL-UNNAMED</code>.</p>
+ *
+ * <p>The socket is blocking, so a full socket send buffer waits in the
+ * kernel instead of spinning in the transmitter.</p>
+ *
+ * @author agent
+ *
+ */
+public class MmsgSendBackend implements SendBackend {
+
+  /**
+   * from the Linux headers
+   */
+  static final int AF_INET = 2;
+  static final int AF_INET6 = 10;
+  static final int SOCK_DGRAM = 2;
+  static final int EINTR = 4;
+  static final int EAGAIN = 11;
+
+  /**
+   * the kernel caps a sendmmsg call at UIO_MAXIOV messages
+   */
+  static final int MAXIMUM_BATCH_SIZE = 1024;
+
+  /**
+   * struct sizes and offsets on 64 bit Linux. A struct mmsghdr is a struct
+   * msghdr { msg_name, msg_namelen, msg_iov, msg_iovlen, msg_control,
+   * msg_controllen, msg_flags } followed by msg_len and padding.
+   */
+  static final long MMSGHDR_SIZE = 64;
+  static final long MSG_NAME = 0;
+  static final long MSG_NAMELEN = 8;
+  static final long MSG_IOV = 16;
+  static final long MSG_IOVLEN = 24;
+  static final long IOVEC_SIZE = 16;
+  static final long IOV_LEN = 8;
+  static final int SOCKADDR_IN_SIZE = 16;
+  static final int SOCKADDR_IN6_SIZE = 28;
+
+  /**
+   * ports are in network byte order
+   */
+  static final ValueLayout.OfShort PORT =
+      JAVA_SHORT.withOrder(ByteOrder.BIG_ENDIAN);
+
+  private static final MethodHandle SOCKET;
+  private static final MethodHandle BIND;
+  private static final MethodHandle GETSOCKNAME;
+  private static final MethodHandle SENDMMSG;
+  private static final MethodHandle CLOSE;
+
+  /**
+   * where errno lands in the captured call state
+   */
+  private static final long ERRNO_OFFSET;
+
+  static {
+    if (!System.getProperty("os.name").startsWith("Linux")
+        || ADDRESS.byteSize() != 8) {
+      throw new UnsupportedOperationException("sendmmsg needs 64 bit Linux");
+    }
+    Linker linker = Linker.nativeLinker();
+    SymbolLookup libc = linker.defaultLookup();
+    Linker.Option errno = Linker.Option.captureCallState("errno");
+    SOCKET = linker.downcallHandle(libc.find("socket").orElseThrow(),
+        FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT, JAVA_INT), errno);
+    BIND = linker.downcallHandle(libc.find("bind").orElseThrow(),
+        FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, JAVA_INT), errno);
+    GETSOCKNAME = linker.downcallHandle(
+        libc.find("getsockname").orElseThrow(),
+        FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, ADDRESS), errno);
+    SENDMMSG = linker.downcallHandle(libc.find("sendmmsg").orElseThrow(),
+        FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, JAVA_INT,
+                              JAVA_INT), errno);
+    CLOSE = linker.downcallHandle(libc.find("close").orElseThrow(),
+        FunctionDescriptor.of(JAVA_INT, JAVA_INT));
+    ERRNO_OFFSET = Linker.Option.captureStateLayout()
+        .byteOffset(MemoryLayout.PathElement.groupElement("errno"));
+  }
+
+  /**
+   * everything off-heap lives as long as the socket
+   */
+  private final Arena arena = Arena.ofShared();
+
+  private final int family;
+  private final int fd;
+  private final MemorySegment callState;
+  private final MemorySegment address;
+  private final MemorySegment iovec;
+  private final MemorySegment messages;
+  private MemorySegment payload;
+
+  /**
+   * target the address segment currently holds
+   */
+  private InetSocketAddress addressTarget;
+
+  private boolean closed;
+
+  /**
+   * Open a socket bound to an ephemeral port
+   *
+   * @param target where we will send to, selects the address family
+   * @throws IOException when the socket cannot be opened or bound
+   */
+  public MmsgSendBackend(InetSocketAddress target) throws IOException {
+    super();
+    family = target.getAddress() instanceof Inet6Address ? AF_INET6 : AF_INET;
+    callState = arena.allocate(Linker.Option.captureStateLayout());
+    address = arena.allocate(SOCKADDR_IN6_SIZE, 8);
+    iovec = arena.allocate(IOVEC_SIZE, 8);
+    messages = arena.allocate(MMSGHDR_SIZE * MAXIMUM_BATCH_SIZE, 8);
+    payload = arena.allocate(1, 8);
+
+    int socket;
+    try {
+      socket = (int) SOCKET.invokeExact(callState, family, SOCK_DGRAM, 0);
+    } catch (Throwable e) {
+      arena.close();
+      throw new IOException(e);
+    }
+    if (socket < 0) {
+      IOException failure = failure("socket");
+      arena.close();
+      throw failure;
+    }
+    fd = socket;
+
+    // wildcard address, port 0
+    address.fill((byte) 0);
+    address.set(JAVA_SHORT, 0, (short) family);
+    int bound;
+    try {
+      bound = (int) BIND.invokeExact(callState, fd, address, addressSize());
+    } catch (Throwable e) {
+      close();
+      throw new IOException(e);
+    }
+    if (bound < 0) {
+      IOException failure = failure("bind");
+      close();
+      throw failure;
+    }
+
+    iovec.set(ADDRESS, 0, payload);
+    messages.fill((byte) 0);
+    for (long message = 0; message < MAXIMUM_BATCH_SIZE; message++) {
+      long base = message * MMSGHDR_SIZE;
+      messages.set(ADDRESS, base + MSG_NAME, address);
+      messages.set(JAVA_INT, base + MSG_NAMELEN, addressSize());
+      messages.set(ADDRESS, base + MSG_IOV, iovec);
+      messages.set(JAVA_LONG, base + MSG_IOVLEN, 1);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see com.firebind.cbr.transmit.SendBackend#send(java.nio.ByteBuffer, int, java.net.InetSocketAddress)
+   */
+  @Override
+  public int send(ByteBuffer datagram, int count, InetSocketAddress target)
+      throws IOException {
+    if (!target.equals(addressTarget)) {
+      setAddress(target);
+    }
+    int size = datagram.remaining();
+    if (size > payload.byteSize()) {
+      payload = arena.allocate(size, 8);
+      iovec.set(ADDRESS, 0, payload);
+    }
+    // the segment spans position to limit and leaves the buffer as it is
+    MemorySegment.copy(MemorySegment.ofBuffer(datagram), 0, payload, 0, size);
+    iovec.set(JAVA_LONG, IOV_LEN, size);
+
+    int batchSize = Math.min(count, MAXIMUM_BATCH_SIZE);
+    while (true) {
+      int sent;
+      try {
+        sent = (int) SENDMMSG.invokeExact(callState, fd, messages, batchSize,
+                                          0);
+      } catch (Throwable e) {
+        throw new IOException(e);
+      }
+      if (sent >= 0) {
+        return sent;
+      }
+      int errno = callState.get(JAVA_INT, ERRNO_OFFSET);
+      if (EAGAIN == errno) {
+        return 0;
+      }
+      if (EINTR != errno) {
+        throw failure("sendmmsg");
+      }
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see com.firebind.cbr.transmit.SendBackend#getMaximumBatchSize()
+   */
+  @Override
+  public int getMaximumBatchSize() {
+    return MAXIMUM_BATCH_SIZE;
+  }
+
+  /* (non-Javadoc)
+   * @see com.firebind.cbr.transmit.SendBackend#getLocalAddress()
+   */
+  @Override
+  public InetSocketAddress getLocalAddress() throws IOException {
+    try (Arena call = Arena.ofConfined()) {
+      MemorySegment local = call.allocate(SOCKADDR_IN6_SIZE, 8);
+      MemorySegment length = call.allocate(JAVA_INT);
+      length.set(JAVA_INT, 0, SOCKADDR_IN6_SIZE);
+      int status;
+      try {
+        status = (int) GETSOCKNAME.invokeExact(callState, fd, local, length);
+      } catch (Throwable e) {
+        throw new IOException(e);
+      }
+      if (status < 0) {
+        throw failure("getsockname");
+      }
+      byte[] bytes = new byte[AF_INET6 == family ? 16 : 4];
+      MemorySegment.copy(local, JAVA_BYTE, AF_INET6 == family ? 8 : 4, bytes,
+                         0, bytes.length);
+      return new InetSocketAddress(InetAddress.getByAddress(bytes),
+                                   local.get(PORT, 2) & 0xffff);
+    }
+  }
+
+  /**
+   * Close the socket and free the off-heap memory
+   *
+   * @throws IOException when the socket cannot be closed
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if ((int) CLOSE.invokeExact(fd) < 0) {
+        throw new IOException("close failed");
+      }
+    } catch (IOException e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IOException(e);
+    } finally {
+      arena.close();
+    }
+  }
+
+  /**
+   * Write a target into the sockaddr every message points at
+   */
+  private void setAddress(InetSocketAddress target) throws IOException {
+    InetAddress host = target.getAddress();
+    if (null == host) {
+      throw new IOException("unresolved address " + target);
+    }
+    if ((host instanceof Inet6Address) != (AF_INET6 == family)) {
+      throw new IOException(target + " is not in the socket's address "
+                            + "family");
+    }
+    address.fill((byte) 0);
+    address.set(JAVA_SHORT, 0, (short) family);
+    address.set(PORT, 2, (short) target.getPort());
+    byte[] bytes = host.getAddress();
+    if (AF_INET6 == family) {
+      // sin6_flowinfo stays 0
+      MemorySegment.copy(bytes, 0, address, JAVA_BYTE, 8, bytes.length);
+      address.set(JAVA_INT, 24, ((Inet6Address) host).getScopeId());
+    } else {
+      MemorySegment.copy(bytes, 0, address, JAVA_BYTE, 4, bytes.length);
+    }
+    addressTarget = target;
+  }
+
+  private int addressSize() {
+    return AF_INET6 == family ? SOCKADDR_IN6_SIZE : SOCKADDR_IN_SIZE;
+  }
+
+  private IOException failure(String call) {
+    return new IOException(call + " failed with errno "
+                           + callState.get(JAVA_INT, ERRNO_OFFSET));
+  }
+
+}